@@ -0,0 +1,67 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 벤치마크용 애플리케이션 - 외부 H2 서버 없이 인메모리 H2 로 띄운다.
+ * SQL 로그, 결과 캐시처럼 측정 대상이 아닌 비용은 꺼둔다.
+ */
+public final class BenchmarkApplication {
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "logging.level.org.hibernate.SQL=warn",
+                "logging.level.org.hibernate.type=warn",
+                "decorator.datasource.p6spy.enable-logging=false"));
+        args.addAll(Arrays.asList(properties));
+        return run(args);
+    }
+
+    /**
+     * 로그 설정은 프로파일 그대로 두고 띄운다. (콘솔 대신 build/benchmark-sql.log 파일로 남긴다)
+     */
+    public static ConfigurableApplicationContext startWithLogging(String profile) {
+        return run(new ArrayList<>(Arrays.asList(
+                "spring.profiles.active=" + profile,
+                "logging.file.name=build/benchmark-sql.log",
+                "logging.pattern.console=")));
+    }
+
+    private static ConfigurableApplicationContext run(List<String> properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:benchmark" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                "member.search-cache.enabled=false"));
+        args.addAll(properties);
+
+        // application.yml 보다 우선하도록 커맨드라인 인자로 넘긴다
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.stream().map(arg -> "--" + arg).toArray(String[]::new));
+    }
+
+    /**
+     * teams 개의 팀(team1..)과 members 명의 회원(member1..)을 SQL 로 생성
+     * 회원 나이는 0~99, 팀은 순서대로 돌아가며 배정한다.
+     */
+    public static void seed(ConfigurableApplicationContext context, int teams, int members) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select x, concat('team', x) from system_range(1, ?)", teams);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x, concat('member', x), mod(x, 100), mod(x, ?) + 1 from system_range(1, ?)", teams, members);
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberSearchQueryTemplates;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search() 결과 - MemberTeamDto 리스트 vs 열 형식(MemberTeamColumns)
+ * 같은 SQL 을 실행하고 결과를 한 번 순회(나이 합계)한다. 할당량은 -prof gc 의 gc.alloc.rate.norm 으로 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColumnarSearchBenchmark {
+
+    @Param({"ALL_MEMBERS", "TEAM"})
+    String shape;
+
+    @Param({"500"})
+    int fetchSize;
+
+    EntityManager em;
+    Session session;
+    MemberSearchQueryTemplates templates;
+    MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        em = db.createEntityManager();
+        session = em.unwrap(Session.class);
+        templates = db.getBean(MemberSearchQueryTemplates.class);
+
+        condition = new MemberSearchCondition();
+        if (shape.equals("TEAM")) {
+            condition.setTeamName("team6");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    @Benchmark
+    public long dtoList() {
+        List<MemberTeamDto> result = templates.createQuery(em, condition).getResultList();
+        long sum = 0;
+        for (MemberTeamDto dto : result) {
+            sum += dto.getAge();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long columns() {
+        MemberTeamColumns result = session.doReturningWork(
+                connection -> templates.fetchColumns(connection, condition, fetchSize));
+        long sum = 0;
+        for (int row = 0; row < result.size(); row++) {
+            sum += result.age(row);
+        }
+        return sum;
+    }
+}
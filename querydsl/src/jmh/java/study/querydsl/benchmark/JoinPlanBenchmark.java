@@ -0,0 +1,83 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberSearchQueryTemplates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search() 조인 방식 - 항상 member left join team vs 템플릿 (팀 이름 조건이 있으면 inner join)
+ * 두 쿼리 모두 같은 where 절, 같은 파라미터
+ * 팀 조건이 선택적일 때를 보려면 팀 수를 늘린다. (-p teams=1000 -p members=100000)
+ * JPQL 에서 team 을 먼저 쓰는 팀 우선 고정도 재 봤지만 H2 는 inner join 순서를 스스로 골라 차이가 오차 범위 안이었다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JoinPlanBenchmark {
+
+    @Param({"TEAM", "TEAM_AGE", "USERNAME_TEAM", "AGE"})
+    String shape;
+
+    EntityManager em;
+    MemberSearchQueryTemplates templates;
+    MemberSearchCondition condition;
+    String leftJoinJpql;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        em = db.createEntityManager();
+        templates = db.getBean(MemberSearchQueryTemplates.class);
+
+        condition = new MemberSearchCondition();
+        if (shape.startsWith("TEAM") || shape.equals("USERNAME_TEAM")) {
+            condition.setTeamName("team6");
+        }
+        if (shape.startsWith("USERNAME")) {
+            condition.setUsername("member15");
+        }
+        if (shape.endsWith("AGE")) {
+            condition.setAgeGoe(10);
+            condition.setAgeLoe(30);
+        }
+
+        // 조인 방식만 이전(항상 left join)으로 되돌린 같은 JPQL
+        String jpql = templates.jpql(condition);
+        leftJoinJpql = jpql.substring(0, jpql.indexOf(" from "))
+                + " from Member m left join m.team t"
+                + jpql.substring(jpql.indexOf(" where "));
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> leftJoin() {
+        TypedQuery<MemberTeamDto> query = em.createQuery(leftJoinJpql, MemberTeamDto.class);
+        if (condition.getUsername() != null) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if (condition.getTeamName() != null) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        return query.getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> adaptive() {
+        return templates.createQuery(em, condition).getResultList();
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.SQLQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.config.QuerydslSqlConfig;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.MemberSearchQueryTemplates;
+import study.querydsl.repository.MemberSqlSearch;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * search() - Querydsl 동적 쿼리(매번 표현식 생성 + JPQL 직렬화) vs shape 별 JPQL 템플릿 vs Querydsl SQL
+ * sql 은 트랜잭션 없이 실행하므로 쿼리마다 풀에서 커넥션을 얻는다. (JPA 쪽도 트랜잭션 없는 EntityManager 라 같은 조건)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberSearchTemplateBenchmark {
+
+    @Param({"USERNAME", "TEAM_AGE", "ALL"})
+    String shape;
+
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+    MemberSearchQueryTemplates templates;
+    MemberSqlSearch sqlSearch;
+    MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        em = db.createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+        templates = db.getBean(MemberSearchQueryTemplates.class);
+        sqlSearch = new MemberSqlSearch(new SQLQueryFactory(QuerydslSqlConfig.configuration(), db.getBean(DataSource.class)));
+
+        condition = new MemberSearchCondition();
+        if (shape.equals("USERNAME") || shape.equals("ALL")) {
+            condition.setUsername("member15");
+        }
+        if (shape.equals("TEAM_AGE") || shape.equals("ALL")) {
+            condition.setTeamName("team6");
+            condition.setAgeGoe(10);
+            condition.setAgeLoe(30);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydsl() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(condition.getUsername() == null ? null : member.username.eq(condition.getUsername()),
+                        condition.getTeamName() == null ? null : team.name.eq(condition.getTeamName()),
+                        condition.getAgeGoe() == null ? null : member.age.goe(condition.getAgeGoe()),
+                        condition.getAgeLoe() == null ? null : member.age.loe(condition.getAgeLoe()))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> template() {
+        return templates.createQuery(em, condition).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> sql() {
+        return sqlSearch.search(condition);
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 전체 export - searchStream()(커서 하나) vs searchParallelStream()(member_id 구간별 커넥션)
+ * 파티션은 member.export.parallelism(기본 4) 스레드에서 실행되므로 partitions 는 그 수로 줄어든다.
+ * searchParallelStream() 은 시작 전/끝난 뒤 일관성 확인용 집계 쿼리(건수, id/changeStamp 합)를 한 번씩 더 실행한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelExportBenchmark {
+
+    @Param({"2", "4"})
+    int partitions;
+
+    @Param({"500"})
+    int fetchSize;
+
+    MemberRepository memberRepository;
+    TransactionTemplate readOnlyTx;
+    MemberSearchCondition all;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        memberRepository = db.getBean(MemberRepository.class);
+        readOnlyTx = new TransactionTemplate(db.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        all = new MemberSearchCondition();
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<MemberTeamDto> rows = memberRepository.searchStream(all, fetchSize)) {
+                rows.forEach(blackhole::consume);
+            }
+        });
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) {
+        try (Stream<MemberTeamDto> rows = memberRepository.searchParallelStream(all, partitions, fetchSize, false)) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void parallelOrdered(Blackhole blackhole) {
+        try (Stream<MemberTeamDto> rows = memberRepository.searchParallelStream(all, partitions, fetchSize, true)) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+}
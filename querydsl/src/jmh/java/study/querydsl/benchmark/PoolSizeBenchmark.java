@@ -0,0 +1,58 @@
+package study.querydsl.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 커넥션 풀 크기별 동시 search() 처리량 - 16 스레드가 동시에 조회한다.
+ * 풀이 스레드 수보다 작으면 커넥션 획득 대기(hikaricp.connections.acquire)가 늘어난다. 종료할 때 평균/최대 대기 시간을 출력한다.
+ * 스레드 수는 -t 로 바꿀 수 있다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class PoolSizeBenchmark {
+
+    @Param({"2", "4", "8", "16"})
+    public int poolSize;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "spring.datasource.hikari.minimum-idle=" + poolSize);
+        BenchmarkApplication.seed(context, 10, 10000);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Timer acquire = context.getBean(MeterRegistry.class).get("hikaricp.connections.acquire").timer();
+        System.out.printf("%npoolSize=%d connection acquire: count=%d mean=%.3fms max=%.3fms%n", poolSize,
+                acquire.count(), acquire.mean(TimeUnit.MILLISECONDS), acquire.max(TimeUnit.MILLISECONDS));
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(condition);
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.projection.DtoProjections;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * DTO 프로젝션 방식별 비용 (QuerydslBasicTest 의 findDtoBy* 와 같은 쿼리, 전체 회원 조회)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        em = db.createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    // 프로퍼티 접근 (setter)
+    @Benchmark
+    public List<MemberDto> bean() {
+        return queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    // 필드 직접 접근
+    @Benchmark
+    public List<MemberDto> fields() {
+        return queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor() {
+        return queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    // 람다 setter (Projections.bean 과 같은 바인딩)
+    @Benchmark
+    public List<MemberDto> dtoBean() {
+        return queryFactory
+                .select(DtoProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    // MethodHandle 필드 접근 (Projections.fields 와 같은 바인딩)
+    @Benchmark
+    public List<MemberDto> dtoFields() {
+        return queryFactory
+                .select(DtoProjections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+}
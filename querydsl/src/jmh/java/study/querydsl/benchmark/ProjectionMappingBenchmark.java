@@ -0,0 +1,80 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.projection.DtoProjections;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * DTO 프로젝션 방식별 row -> DTO 변환 비용만 (DB 없이 FactoryExpression.newInstance)
+ * ProjectionBenchmark 는 쿼리 실행까지 포함하므로 변환 비용 차이가 잘 보이지 않는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionMappingBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    Object[][] values;
+
+    FactoryExpression<MemberDto> bean = Projections.bean(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> fields = Projections.fields(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> constructor = Projections.constructor(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> queryProjection = new QMemberDto(member.username, member.age);
+    FactoryExpression<MemberDto> dtoBean = DtoProjections.bean(MemberDto.class, member.username, member.age);
+    FactoryExpression<MemberDto> dtoFields = DtoProjections.fields(MemberDto.class, member.username, member.age);
+
+    @Setup
+    public void setUp() {
+        values = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            values[i] = new Object[]{"member" + i, i % 100};
+        }
+    }
+
+    @Benchmark
+    public void bean(Blackhole bh) {
+        map(bean, bh);
+    }
+
+    @Benchmark
+    public void fields(Blackhole bh) {
+        map(fields, bh);
+    }
+
+    @Benchmark
+    public void constructor(Blackhole bh) {
+        map(constructor, bh);
+    }
+
+    @Benchmark
+    public void queryProjection(Blackhole bh) {
+        map(queryProjection, bh);
+    }
+
+    @Benchmark
+    public void dtoBean(Blackhole bh) {
+        map(dtoBean, bh);
+    }
+
+    @Benchmark
+    public void dtoFields(Blackhole bh) {
+        map(dtoFields, bh);
+    }
+
+    private void map(FactoryExpression<MemberDto> projection, Blackhole bh) {
+        for (Object[] row : values) {
+            // 쿼리 결과처럼 row 마다 새 배열
+            bh.consume(projection.newInstance(row[0], row[1]));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 조회 메서드 - 스프링 빈(프록시)을 그대로 호출한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+
+    MemberRepository memberRepository;
+    MemberJpaRepository memberJpaRepository;
+    MemberSearchCondition teamAndAge;
+    MemberSearchCondition all;
+
+    @Setup
+    public void setUp(SeededDatabase db) {
+        memberRepository = db.getBean(MemberRepository.class);
+        memberJpaRepository = db.getBean(MemberJpaRepository.class);
+
+        teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("team3");
+        teamAndAge.setAgeGoe(20);
+        teamAndAge.setAgeLoe(40);
+        all = new MemberSearchCondition();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(teamAndAge);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchAll() {
+        return memberRepository.search(all);
+    }
+
+    @Benchmark
+    public List<Member> findAll() {
+        return memberJpaRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Member> findByUsername() {
+        return memberJpaRepository.findByUsername("member42");
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberUsernameIndex;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 대량 저장 처리량 - MemberJpaRepository.saveAll (시퀀스 pooled 옵티마이저 + JDBC 배치 insert)
+ * 엔티티를 미리 만들어 두지 않고 Iterator 로 하나씩 만든다. 반복마다 저장한 회원을 지운다.
+ * 100만 건: -p rows=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SaveAllBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteMembers() {
+        context.getBean(JdbcTemplate.class).update("delete from member");
+        context.getBean(MemberUsernameIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long saveAll() {
+        return memberJpaRepository.saveAll(() -> generate(rows));
+    }
+
+    private static Iterator<Member> generate(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> new Member("bulk" + i, i % 100))
+                .iterator();
+    }
+}
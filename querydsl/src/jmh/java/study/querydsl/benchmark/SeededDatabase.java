@@ -0,0 +1,48 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 벤치마크 공통 상태 - 팀/회원 수만큼 데이터를 넣은 인메모리 H2 애플리케이션
+ * 데이터 양은 -p teams=..,members=.. (gradle: -PjmhTeams, -PjmhMembers) 로 바꿀 수 있다.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    @Param({"10"})
+    public int teams;
+
+    @Param({"1000", "10000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(properties());
+        BenchmarkApplication.seed(context, teams, members);
+    }
+
+    // 특정 벤치마크에만 필요한 설정은 하위 상태 클래스에서 (다른 벤치마크 측정값에 비용이 섞이지 않도록)
+    protected String[] properties() {
+        return new String[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    // 트랜잭션 없이 조회만 하는 애플리케이션 관리 EntityManager
+    public EntityManager createEntityManager() {
+        return context.getBean(EntityManagerFactory.class).createEntityManager();
+    }
+}
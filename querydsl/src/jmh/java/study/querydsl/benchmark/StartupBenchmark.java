@@ -0,0 +1,31 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 애플리케이션 시작 시간 - 기본 프로파일(ddl-auto: create, 리포지토리 즉시 초기화)과
+ * embedded 프로파일(Flyway 마이그레이션 + validate, 리포지토리 지연 초기화) 비교
+ * 둘 다 매번 새 인메모리 DB 로 띄우고, 첫 조회(지연 초기화된 리포지토리 생성 포함)까지 잰다.
+ * 같은 JVM 에서 반복하면 클래스 로딩/JIT 비용이 빠진다. 콜드 스타트는 -f 5 -wi 0 -i 1 (포크마다 한 번) 로 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class StartupBenchmark {
+
+    @Param({"default", "embedded"})
+    public String profile;
+
+    @Benchmark
+    public long startAndFirstQuery() {
+        try (ConfigurableApplicationContext context = BenchmarkApplication.start("spring.profiles.active=" + profile)) {
+            return context.getBean(MemberRepository.class).count();
+        }
+    }
+}
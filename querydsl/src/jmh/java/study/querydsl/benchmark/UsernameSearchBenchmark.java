@@ -0,0 +1,98 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.*;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberUsernameIndex;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * username 부분 검색 - like '%x%' 전체 스캔 vs 3-gram 인덱스 후보 + like 확인, 그리고 prefix(like 'x%', 인덱스 범위 검색)
+ * repository 는 UsernameMatch.CONTAINS 로 search() 를 부른 전체 비용 (트랜잭션 포함)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UsernameSearchBenchmark {
+
+    // member1.. 중 매칭되는 회원 수가 다른 검색어 (10000 명이면 1, 11, 111 명)
+    @Param({"ber4321", "ber432", "ber43"})
+    String needle;
+
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+    MemberUsernameIndex usernameIndex;
+    MemberRepository memberRepository;
+    MemberSearchCondition condition;
+    String prefix;
+
+    // username 인덱스는 이 벤치마크에서만 켠다 - 엔티티 리스너 색인 비용이 저장/조회 벤치마크에 섞이지 않도록
+    public static class IndexedDatabase extends SeededDatabase {
+        @Override
+        protected String[] properties() {
+            return new String[]{"member.username-index.enabled=true"};
+        }
+    }
+
+    @Setup
+    public void setUp(IndexedDatabase db) {
+        em = db.createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+        usernameIndex = db.getBean(MemberUsernameIndex.class);
+        usernameIndex.rebuild(); // 시드 데이터는 SQL 로 넣었다
+        memberRepository = db.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setUsername(needle);
+        condition.setUsernameMatch(UsernameMatch.CONTAINS);
+        prefix = "mem" + needle;
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    @Benchmark
+    public List<Long> likeScan() {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.username.contains(needle))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<Long> indexed() {
+        Set<Long> candidates = usernameIndex.candidates(needle);
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(candidates == null ? null : member.id.in(candidates),
+                        member.username.contains(needle))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.username.startsWith(prefix))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> repository() {
+        return memberRepository.search(condition);
+    }
+}
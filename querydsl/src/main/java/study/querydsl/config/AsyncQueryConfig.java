@@ -0,0 +1,69 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchAsync() 용 조회 전용 Executor
+ * ----------------------------------
+ * 기본은 스레드 수/대기열이 제한된 풀이고 대기열이 차면 RejectedExecutionException 으로 바로 실패한다.
+ * member.async.virtual-threads=true 이면 JDK 21 이상에서 가상 스레드를 쓴다. (동시 실행 수는 커넥션 풀이 제한한다)
+ * searchParallelStream() 파티션은 별도 Executor 에서 실행한다. (export 가 검색 스레드를 오래 잡지 않도록)
+ * 두 Executor 의 스레드가 모두 조회 중이면 그만큼 커넥션을 잡으므로 커넥션 풀은 둘을 합친 것보다 커야 한다.
+ * (모자라면 경고만 한다 - 풀 크기만 바꿔 보는 PoolSizeBenchmark 처럼 Executor 를 쓰지 않는 경우도 있다)
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+public class AsyncQueryConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService memberQueryExecutor(@Value("${member.async.pool-size:10}") int poolSize,
+                                               @Value("${member.async.queue-capacity:100}") int queueCapacity,
+                                               @Value("${member.async.virtual-threads:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                return executor;
+            }
+            log.warn("virtual threads are not available on Java {}, using a bounded pool",
+                    System.getProperty("java.version"));
+        }
+        return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("member-query-"));
+    }
+
+    // 파티션 수는 호출마다 정해져 있으므로 대기열은 제한하지 않는다 (FIFO - 먼저 제출한 파티션이 먼저 실행된다)
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService memberExportExecutor(@Value("${member.export.parallelism:4}") int parallelism,
+                                                @Value("${member.async.pool-size:10}") int queryPoolSize,
+                                                @Value("${member.async.virtual-threads:false}") boolean virtualThreads,
+                                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        int threads = virtualThreads ? parallelism : queryPoolSize + parallelism;
+        if (threads > connectionPoolSize) {
+            log.warn("member.async.pool-size({}) + member.export.parallelism({}) exceeds maximum-pool-size({}) - " +
+                            "fan-out searches and exports will wait for connections",
+                    virtualThreads ? "virtual" : queryPoolSize, parallelism, connectionPoolSize);
+        }
+        return new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("member-export-"));
+    }
+
+    // 컴파일 대상이 17 이므로 리플렉션으로 호출한다
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
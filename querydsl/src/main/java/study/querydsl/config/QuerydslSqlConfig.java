@@ -0,0 +1,36 @@
+package study.querydsl.config;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Querydsl SQL - member.search.engine=sql 일 때만 켜진다. (MemberSqlSearch)
+ * -------------------------------------------------------------------
+ * 메타 모델(study.querydsl.sql.SMember 등)은 빌드할 때 Flyway 마이그레이션 스키마에서 생성한다. (build.gradle generateQuerydslSql)
+ * SpringConnectionProvider 는 현재 트랜잭션(JpaTransactionManager 가 묶어 둔 커넥션)을 그대로 쓰므로
+ * JPA 와 같은 트랜잭션에서 실행되고, 트랜잭션 밖에서 호출하면 IllegalStateException 이다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "member.search.engine", havingValue = "sql")
+public class QuerydslSqlConfig {
+
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+        return new SQLQueryFactory(configuration(), new SpringConnectionProvider(dataSource));
+    }
+
+    // quote() - 식별자를 항상 따옴표로 감싼다. 끄면 직렬화할 때마다 식별자별 예약어 검사(requiresQuotes)로 할당이 많다.
+    // 메타 모델 이름이 DB 의 대문자 이름 그대로이므로 결과는 같다.
+    public static com.querydsl.sql.Configuration configuration() {
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(H2Templates.builder().quote().build());
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        return configuration;
+    }
+}
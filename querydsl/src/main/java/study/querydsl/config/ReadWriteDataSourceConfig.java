@@ -0,0 +1,67 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기 복제본 라우팅 - member.datasource.read.url 이 있을 때만 켜진다.
+ * -------------------------------------------------------------
+ * JpaTransactionManager 는 readOnly 여부를 TransactionSynchronizationManager 에 알리기 전에 커넥션을 얻으므로
+ * LazyConnectionDataSourceProxy 로 첫 SQL 을 실행할 때까지 커넥션 획득(라우팅)을 미룬다.
+ * p6spy 는 커넥션을 얻자마자 실제 커넥션을 건드리므로 라우팅 DataSource 가 아니라 쓰기/읽기 풀을 감싼다. (decorator.datasource.exclude-beans)
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("member.datasource.read.url")
+public class ReadWriteDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("write");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("member.datasource.read.hikari")
+    public HikariDataSource readDataSource(@Value("${member.datasource.read.url}") String url,
+                                           @Value("${member.datasource.read.username:sa}") String username,
+                                           @Value("${member.datasource.read.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("read");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource routingDataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+                                        @Qualifier("readDataSource") DataSource readDataSource) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.Route.WRITE, writeDataSource);
+        targets.put(ReadWriteRoutingDataSource.Route.READ, readDataSource);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
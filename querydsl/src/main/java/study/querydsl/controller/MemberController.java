@@ -0,0 +1,184 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+@RestController
+public class MemberController {
+
+    private final MemberRepository memberRepository;
+    private final Duration queryTimeout;
+    private final int streamFetchSize;
+    private final int maxPartitions;
+    private final int maxTeams;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+
+    public MemberController(MemberRepository memberRepository,
+                            @Value("${member.async.query-timeout:5s}") Duration queryTimeout,
+                            @Value("${member.stream.fetch-size:500}") int streamFetchSize,
+                            @Value("${member.export.parallelism:4}") int maxPartitions,
+                            @Value("${member.async.queue-capacity:100}") int maxTeams,
+                            PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper) {
+        this.memberRepository = memberRepository;
+        this.queryTimeout = queryTimeout;
+        this.streamFetchSize = streamFetchSize;
+        this.maxPartitions = maxPartitions;
+        this.maxTeams = maxTeams;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(MemberTeamDto.class);
+    }
+
+    /**
+     * 검색 결과를 한 줄에 하나씩 JSON 으로 내려준다. (NDJSON)
+     * DB 커서로 읽은 row 를 바로 응답에 쓰므로 결과 전체를 List 나 byte[] 로 만들지 않는다.
+     * 기본은 커서 하나(한 트랜잭션의 스냅샷)로 읽는다.
+     * partitions 가 2 이상이면 member_id 구간별로 나누어 동시에 조회한다. (searchParallelStream - 순서 없음)
+     * 마지막 줄은 row 가 아닌 끝 표시다. 끝 표시가 없으면 응답이 중간에 끊긴 것이다.
+     * - {"complete":true,"count":N} - row N 건을 모두 보냈다
+     * - {"complete":false,"count":N,"error":"..."} - partitions 조회 중에 회원/팀이 바뀌어 한 시점의 결과가 아니다 (버리고 다시 요청한다)
+     * partitions 는 1 ~ member.export.parallelism - 벗어나면 400
+     * 예) /v1/members?teamName=teamA&ageGoe=20, /v1/members?partitions=4
+     */
+    @GetMapping(value = "/v1/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> searchMembers(MemberSearchCondition condition,
+                                                               @RequestParam(defaultValue = "1") int partitions) {
+        if (partitions < 1 || partitions > maxPartitions) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "partitions must be between 1 and " + maxPartitions + ": " + partitions);
+        }
+        StreamingResponseBody body = partitions > 1
+                ? out -> {
+                    try (Stream<MemberTeamDto> rows =
+                                 memberRepository.searchParallelStream(condition, partitions, streamFetchSize, false)) {
+                        writeRows(rows, new BufferedOutputStream(out));
+                    }
+                }
+                : out -> readOnlyTx.executeWithoutResult(status -> {
+                    try (Stream<MemberTeamDto> rows = memberRepository.searchStream(condition, streamFetchSize)) {
+                        writeRows(rows, new BufferedOutputStream(out));
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeRows(Stream<MemberTeamDto> rows, OutputStream out) {
+        try {
+            long count = 0;
+            ObjectNode trailer = objectMapper.createObjectNode();
+            try {
+                for (MemberTeamDto row : (Iterable<MemberTeamDto>) rows::iterator) {
+                    out.write(rowWriter.writeValueAsBytes(row));
+                    out.write('\n');
+                    count++;
+                }
+                trailer.put("complete", true).put("count", count);
+            } catch (OptimisticLockingFailureException e) {
+                // searchParallelStream - 이미 보낸 row 는 한 시점의 결과가 아니다 (상태 코드는 이미 200 이므로 끝 표시로 알린다)
+                trailer.put("complete", false).put("count", count).put("error", e.getMessage());
+            }
+            out.write(objectMapper.writeValueAsBytes(trailer));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // 클라이언트가 연결을 끊은 경우 등 - 트랜잭션을 롤백하고 커서를 닫는다
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 팀별 검색을 동시에 실행한다. 요청 스레드는 바로 반환되고 모든 검색이 끝나면 응답한다.
+     * 한 팀의 검색이 실패하거나 타임아웃되면 나머지 검색은 취소하고 그 예외로 응답한다.
+     * 같은 팀 이름은 한 번만 검색한다. 팀이 조회 Executor 대기열(member.async.queue-capacity)보다 많으면 400,
+     * 대기열이 차서 검색을 제출하지 못하면 503
+     * 예) /v1/members/by-team?teamNames=teamA,teamB&ageGoe=20
+     */
+    @GetMapping("/v1/members/by-team")
+    public CompletableFuture<Map<String, List<MemberTeamDto>>> searchByTeams(MemberSearchCondition condition,
+                                                                              @RequestParam List<String> teamNames) {
+        Set<String> distinctTeamNames = new LinkedHashSet<>(teamNames);
+        if (distinctTeamNames.size() > maxTeams) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at most " + maxTeams + " teamNames: " + distinctTeamNames.size());
+        }
+        Map<String, CompletableFuture<List<MemberTeamDto>>> futures = new LinkedHashMap<>();
+        for (String teamName : distinctTeamNames) {
+            futures.put(teamName, memberRepository.searchAsync(withTeamName(condition, teamName), queryTimeout));
+        }
+
+        // 처음 실패한 예외로 응답하고, 나머지는 결과를 쓰지 않으므로 취소해서 조회 스레드와 커넥션을 돌려준다
+        CompletableFuture<Map<String, List<MemberTeamDto>>> response = new CompletableFuture<>();
+        futures.values().forEach(future -> future.whenComplete((rows, e) -> {
+            if (e != null && response.completeExceptionally(e)) {
+                futures.values().forEach(sibling -> sibling.cancel(true));
+            }
+        }));
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenRun(() -> {
+                    Map<String, List<MemberTeamDto>> result = new LinkedHashMap<>();
+                    futures.forEach((teamName, future) -> result.put(teamName, future.join()));
+                    response.complete(result);
+                });
+        return response;
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void queryTimeout() {
+    }
+
+    // 조회 Executor 대기열이 가득 참
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void queryRejected() {
+    }
+
+    private MemberSearchCondition withTeamName(MemberSearchCondition condition, String teamName) {
+        MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setUsername(condition.getUsername());
+        byTeam.setUsernameMatch(condition.getUsernameMatch());
+        byTeam.setTeamName(teamName);
+        byTeam.setAgeGoe(condition.getAgeGoe());
+        byTeam.setAgeLoe(condition.getAgeLoe());
+        return byTeam;
+    }
+}
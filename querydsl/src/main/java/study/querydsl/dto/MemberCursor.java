@@ -0,0 +1,51 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 키셋 페이징 커서 (마지막으로 본 row 의 정렬 키 + member.id)
+ * 클라이언트에는 Base64 문자열로만 노출한다.
+ */
+@Getter
+public class MemberCursor {
+
+    private final MemberKeysetSort sort;
+    private final Integer age;
+    private final Long memberId;
+
+    private MemberCursor(MemberKeysetSort sort, Integer age, Long memberId) {
+        this.sort = sort;
+        this.age = age;
+        this.memberId = memberId;
+    }
+
+    public static MemberCursor after(MemberKeysetSort sort, MemberTeamDto last) {
+        return new MemberCursor(sort, sort == MemberKeysetSort.AGE ? last.getAge() : null, last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = sort == MemberKeysetSort.AGE
+                ? sort.name() + ":" + age + ":" + memberId
+                : sort.name() + ":" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String cursor, MemberKeysetSort sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            MemberKeysetSort cursorSort = MemberKeysetSort.valueOf(parts[0]);
+            if (cursorSort != sort) {
+                throw new IllegalArgumentException("cursor sort " + cursorSort + " does not match " + sort);
+            }
+            if (sort == MemberKeysetSort.AGE) {
+                return new MemberCursor(sort, Integer.valueOf(parts[1]), Long.valueOf(parts[2]));
+            }
+            return new MemberCursor(sort, null, Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberKeysetPage {
+
+    private final List<MemberTeamDto> content;
+    private final String nextCursor; // 마지막 페이지면 null
+
+    public MemberKeysetPage(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
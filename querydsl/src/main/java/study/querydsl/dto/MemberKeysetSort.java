@@ -0,0 +1,10 @@
+package study.querydsl.dto;
+
+/**
+ * 키셋(seek) 페이징 정렬 기준
+ * 모든 정렬은 member.id 를 마지막 정렬 키로 포함해서 순서가 항상 유일하다.
+ */
+public enum MemberKeysetSort {
+    ID,     // member.id asc
+    AGE     // member.age asc, member.id asc
+}
@@ -6,8 +6,13 @@ import lombok.Data;
 @Data
 public class MemberSearchCondition {
     private String username;
+    private UsernameMatch usernameMatch = UsernameMatch.EXACT;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
 
+    // 빈 값(?usernameMatch=)은 null 로 바인딩된다 - 기본값과 같이 EXACT
+    public void setUsernameMatch(UsernameMatch usernameMatch) {
+        this.usernameMatch = usernameMatch == null ? UsernameMatch.EXACT : usernameMatch;
+    }
 }
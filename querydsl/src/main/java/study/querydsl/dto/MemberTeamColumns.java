@@ -0,0 +1,214 @@
+package study.querydsl.dto;
+
+import java.util.Arrays;
+
+/**
+ * search() 결과의 열(column) 형식
+ * ------------------------------
+ * row 마다 MemberTeamDto/박싱된 Long 을 만들지 않고 열별 원시 타입 배열에 담는다. (대량 조회 후 순회만 하는 집계/분석용)
+ * 팀은 (id, 이름) 사전으로 인코딩한다 - teamCode(row) 가 사전 인덱스이고, 팀이 없는 회원은 NO_TEAM.
+ * 순회 중 수정하지 않으며 여러 스레드에서 읽어도 된다.
+ */
+public class MemberTeamColumns {
+
+    public static final int NO_TEAM = -1;
+
+    private final int size;
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final int[] teamCodes;
+    private final long[] teamIds;
+    private final String[] teamNames;
+
+    private MemberTeamColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = builder.memberIds;
+        this.usernames = builder.usernames;
+        this.ages = builder.ages;
+        this.teamCodes = builder.teamCodes;
+        this.teamIds = builder.teamIds;
+        this.teamNames = builder.teamNames;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memberId(int row) {
+        return memberIds[checkRow(row)];
+    }
+
+    public String username(int row) {
+        return usernames[checkRow(row)];
+    }
+
+    public int age(int row) {
+        return ages[checkRow(row)];
+    }
+
+    public int teamCode(int row) {
+        return teamCodes[checkRow(row)];
+    }
+
+    /**
+     * 사전에 있는 팀 수 (teamCode 는 0 ~ teamCount() - 1)
+     */
+    public int teamCount() {
+        return teamNames.length;
+    }
+
+    public long teamId(int teamCode) {
+        return teamIds[teamCode];
+    }
+
+    public String teamName(int teamCode) {
+        return teamNames[teamCode];
+    }
+
+    public MemberTeamDto toDto(int row) {
+        int teamCode = teamCode(row);
+        return new MemberTeamDto(memberIds[row], usernames[row], ages[row],
+                teamCode == NO_TEAM ? null : teamIds[teamCode],
+                teamCode == NO_TEAM ? null : teamNames[teamCode]);
+    }
+
+    // 배열은 capacity 만큼 잡혀 있으므로 size 밖의 인덱스는 막는다
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+        return row;
+    }
+
+    public static Builder builder(int initialCapacity) {
+        return new Builder(initialCapacity);
+    }
+
+    /**
+     * ResultSet 을 읽으면서 한 row 씩 추가한다. 배열은 1.5 배씩 늘린다.
+     */
+    public static class Builder {
+        private int size;
+        private long[] memberIds;
+        private String[] usernames;
+        private int[] ages;
+        private int[] teamCodes;
+
+        // 팀 사전 - teamId -> code 는 박싱 없는 open addressing (키 0 은 빈 칸으로 쓰므로 별도 처리)
+        private long[] teamIds = new long[16];
+        private String[] teamNames = new String[16];
+        private int teamCount;
+        private long[] slotKeys = new long[32];
+        private int[] slotCodes = new int[32];
+        private int zeroIdCode = NO_TEAM;
+        private long lastTeamId;
+        private int lastTeamCode = NO_TEAM;
+
+        private Builder(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 16);
+            memberIds = new long[capacity];
+            usernames = new String[capacity];
+            ages = new int[capacity];
+            teamCodes = new int[capacity];
+        }
+
+        public Builder add(long memberId, String username, int age) {
+            return add(memberId, username, age, NO_TEAM);
+        }
+
+        public Builder add(long memberId, String username, int age, long teamId, String teamName) {
+            return add(memberId, username, age, teamCode(teamId, teamName));
+        }
+
+        private Builder add(long memberId, String username, int age, int teamCode) {
+            if (size == memberIds.length) {
+                int capacity = size + (size >> 1);
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            usernames[size] = username;
+            ages[size] = age;
+            teamCodes[size] = teamCode;
+            size++;
+            return this;
+        }
+
+        // 팀 우선 조인이면 같은 팀 row 가 연속으로 나오므로 직전 팀부터 확인
+        private int teamCode(long teamId, String teamName) {
+            if (lastTeamCode != NO_TEAM && lastTeamId == teamId) {
+                return lastTeamCode;
+            }
+            int code = teamId == 0 ? zeroIdCode : lookup(teamId);
+            if (code == NO_TEAM) {
+                code = addTeam(teamId, teamName);
+            }
+            lastTeamId = teamId;
+            lastTeamCode = code;
+            return code;
+        }
+
+        private int lookup(long teamId) {
+            int mask = slotKeys.length - 1;
+            for (int slot = hash(teamId) & mask; slotKeys[slot] != 0; slot = (slot + 1) & mask) {
+                if (slotKeys[slot] == teamId) {
+                    return slotCodes[slot];
+                }
+            }
+            return NO_TEAM;
+        }
+
+        private int addTeam(long teamId, String teamName) {
+            if (teamCount == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+                teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+            }
+            int code = teamCount++;
+            teamIds[code] = teamId;
+            teamNames[code] = teamName;
+            if (teamId == 0) {
+                zeroIdCode = code;
+            } else {
+                if (teamCount * 2 > slotKeys.length) {
+                    rehash();
+                }
+                insert(teamId, code);
+            }
+            return code;
+        }
+
+        private void insert(long teamId, int code) {
+            int mask = slotKeys.length - 1;
+            int slot = hash(teamId) & mask;
+            while (slotKeys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = teamId;
+            slotCodes[slot] = code;
+        }
+
+        private void rehash() {
+            slotKeys = new long[slotKeys.length * 2];
+            slotCodes = new int[slotCodes.length * 2];
+            for (int code = 0; code < teamCount - 1; code++) {
+                if (teamIds[code] != 0) {
+                    insert(teamIds[code], code);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        public MemberTeamColumns build() {
+            teamIds = Arrays.copyOf(teamIds, teamCount);
+            teamNames = Arrays.copyOf(teamNames, teamCount);
+            return new MemberTeamColumns(this);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package study.querydsl.dto;
 
 import com.querydsl.core.annotations.QueryProjection;
-import lombok.Data;
+import lombok.Value;
 
-@Data
+/**
+ * search() 캐시가 같은 인스턴스를 여러 호출자에게 돌려주므로 불변이다. (MemberSearchCache)
+ */
+@Value
 public class MemberTeamDto {
 
-    private Long memberId;
-    private String username;
-    private int age;
-    private Long teamId;
-    private String teamName;
+    Long memberId;
+    String username;
+    int age;
+    Long teamId;
+    String teamName;
 
     @QueryProjection
     public MemberTeamDto(Long memberId, String username, int age, Long teamId, String teamName) {
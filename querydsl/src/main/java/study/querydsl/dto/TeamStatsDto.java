@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+/**
+ * 팀별 회원 통계 - 요약 테이블(TeamSummary)에서 읽으면 최소/최대 나이는 null
+ */
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private Double avgAge;
+    private Integer minAge;
+    private Integer maxAge;
+
+    @QueryProjection
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, Double avgAge, Integer minAge, Integer maxAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.avgAge = avgAge;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, long ageSum) {
+        this(teamId, teamName, memberCount, memberCount == 0 ? null : (double) ageSum / memberCount, null, null);
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+/**
+ * MemberSearchCondition.username 비교 방식
+ */
+public enum UsernameMatch {
+    /**
+     * username = :username (idx_member_username)
+     */
+    EXACT,
+    /**
+     * username like 'x%' - idx_member_username 범위 검색
+     */
+    PREFIX,
+    /**
+     * username like '%x%' - MemberUsernameIndex(3-gram) 로 후보 id 를 좁힌 뒤 DB 에서 다시 확인한다.
+     * 인덱스가 꺼져 있거나(member.username-index.enabled), 3 글자 미만이거나, 색인에 없는 3-gram 이 있거나, 후보가 너무 많으면 like 스캔
+     */
+    CONTAINS
+}
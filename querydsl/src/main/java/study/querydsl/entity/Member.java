@@ -1,15 +1,29 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.ColumnDefault;
+import study.querydsl.repository.MemberUsernameIndexListener;
 
 import javax.persistence.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Entity
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+// search()/findByUsername 조건용 인덱스 - (team_id, age, username) 은 팀+나이 범위 검색을 테이블 접근 없이 처리한다
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age, username"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
+@EntityListeners(MemberUsernameIndexListener.class) // username 3-gram 인덱스 (UsernameMatch.CONTAINS)
 public class Member {
-    @Id @GeneratedValue
+    // pooled 옵티마이저 - 시퀀스를 50 번에 한 번만 호출하고 insert 를 배치로 묶을 수 있다
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name ="member_id")
     private Long id;
     private String username;
@@ -19,6 +33,12 @@ public class Member {
     @JoinColumn(name = "team_id")
     private  Team team;
 
+    // 변경 표시 - searchParallelStream 은 export 전후의 합으로 그 사이에 바뀐 회원이 있는지 확인한다
+    // @Version 이 아니므로 수정할 때 검사하지 않는다 (잠금 없음). SQL 로 넣은 row 는 0, SQL/벌크로 수정하면 직접 바꿔야 한다
+    @ColumnDefault("0")
+    @Setter(AccessLevel.NONE)
+    private int changeStamp;
+
     public Member(String username) {
         this(username, 0);
     }
@@ -32,8 +52,20 @@ public class Member {
             changeTeam(team);
         }
     }
+    // 이전 팀 members 가 이미 로딩됐으면 거기서도 뺀다. 로딩되지 않았으면 remove 가 팀 회원 전체를 조회하므로 건드리지 않는다
+    // (Team.members 2차 캐시는 auto_evict_collection_cache 가 커밋 때 비운다 - 같은 영속성 컨텍스트에서는 flush 뒤에 로딩해야 맞다)
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team.getMembers())) {
+            this.team.getMembers().remove(this);
+        }
         this.team = team;
         team.getMembers().add(this);
     }
+
+    // 저장/수정할 때마다 이전과 다른 임의의 값 (0 ~ Integer.MAX_VALUE - 1)
+    @PrePersist
+    @PreUpdate
+    void stampChange() {
+        changeStamp = (int) ((changeStamp + 1L + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE - 1)) % Integer.MAX_VALUE);
+    }
 }
@@ -1,20 +1,38 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Entity
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+// 2차 캐시 - 거의 바뀌지 않고 search()/Member.getTeam() 마다 읽힌다 (region 크기는 application.conf)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     private Long id;
     private String name;
 
+    // 변경 표시 - 팀 이름이 바뀌면 달라진다 (searchParallelStream 일관성 확인, @Version 아님)
+    @ColumnDefault("0")
+    @Setter(AccessLevel.NONE)
+    private int changeStamp;
+
+    // 여러 팀의 members 를 초기화할 때 in 쿼리 하나로 묶어서 조회 (N+1 방지)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team-members")
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
@@ -22,4 +40,11 @@ public class Team {
         this.name = name;
     }
 
+    // 저장/수정할 때마다 이전과 다른 임의의 값 (0 ~ Integer.MAX_VALUE - 1)
+    @PrePersist
+    @PreUpdate
+    void stampChange() {
+        changeStamp = (int) ((changeStamp + 1L + ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE - 1)) % Integer.MAX_VALUE);
+    }
+
 }
@@ -0,0 +1,22 @@
+package study.querydsl.entity;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 팀별 회원 수/나이 합계 요약 - TeamSummaryMaintainer 가 Member 저장/팀 변경/삭제 때마다 갱신한다.
+ * 평균은 ageSum / memberCount. 최소/최대는 삭제 시 증분으로 유지할 수 없어 두지 않는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamSummary {
+
+    @Id
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+}
@@ -0,0 +1,107 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberKeysetPage;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * 리포지토리 메서드별 실행 시간, 반환 row 수, 실행된 SQL 수
+ * - repository.invocations (timer)
+ * - repository.rows, repository.statements (summary)
+ * CompletableFuture 를 반환하면 완료될 때, Stream 을 반환하면 close 될 때 기록한다. (실행 시간도 그때까지)
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * *(..)) && (this(study.querydsl.repository.MemberRepository) " +
+            "|| target(study.querydsl.repository.MemberJpaRepository))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = joinPoint.getThis() instanceof MemberRepository ? "MemberRepository" : "MemberJpaRepository";
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(registry);
+        Object result;
+        try (SqlStatementCounter.Scope statements = SqlStatementCounter.open()) {
+            try {
+                result = joinPoint.proceed();
+            } catch (Throwable e) {
+                record(repository, method, sample, statements, null, e);
+                throw e;
+            }
+            // 다른 스레드에서 끝나는 호출(searchAsync, searchParallelStream)은 끝났을 때 기록한다 (SqlStatementCounter.propagate)
+            if (result instanceof CompletableFuture) {
+                // 반환하는 future 는 그대로 둔다 - 호출한 쪽의 cancel() 이 원래 작업에 전달되도록
+                ((CompletableFuture<?>) result).whenComplete((value, e) ->
+                        record(repository, method, sample, statements, value, e));
+                return result;
+            }
+            if (result instanceof Stream) {
+                return ((Stream<?>) result).onClose(() -> record(repository, method, sample, statements, null, null));
+            }
+            record(repository, method, sample, statements, result, null);
+            return result;
+        }
+    }
+
+    private void record(String repository, String method, Timer.Sample sample, SqlStatementCounter.Scope statements,
+                        Object result, Throwable exception) {
+        sample.stop(Timer.builder("repository.invocations")
+                .tags("repository", repository, "method", method,
+                        "exception", exception == null ? "none" : exceptionName(exception))
+                .register(registry));
+        DistributionSummary.builder("repository.statements")
+                .tags("repository", repository, "method", method)
+                .register(registry)
+                .record(statements.count());
+        int rows = exception == null ? rows(result) : -1;
+        if (rows >= 0) {
+            DistributionSummary.builder("repository.rows")
+                    .tags("repository", repository, "method", method)
+                    .register(registry)
+                    .record(rows);
+        }
+    }
+
+    // future 가 실패하면 CompletionException 으로 감싸져 올 수 있다
+    private String exceptionName(Throwable exception) {
+        Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause() : exception;
+        return cause.getClass().getSimpleName();
+    }
+
+    // 스트림처럼 건수를 알 수 없으면 -1
+    private int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberKeysetPage) {
+            return ((MemberKeysetPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.metrics;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 느린 쿼리 최근 N 건 (바인딩 값 포함) - /actuator/slowqueries
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryLog {
+
+    private final int capacity;
+    private final Deque<SlowQuery> queries = new ArrayDeque<>();
+
+    public SlowQueryLog(@Value("${member.metrics.slow-query-capacity:100}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized void add(SlowQuery query) {
+        if (queries.size() == capacity) {
+            queries.removeFirst();
+        }
+        queries.addLast(query);
+    }
+
+    @ReadOperation
+    public synchronized List<SlowQuery> slowQueries() {
+        return new ArrayList<>(queries);
+    }
+
+    @Getter
+    public static class SlowQuery {
+        private final Instant executedAt;
+        private final long elapsedMillis;
+        private final String sql;
+
+        public SlowQuery(Instant executedAt, long elapsedMillis, String sql) {
+            this.executedAt = executedAt;
+            this.elapsedMillis = elapsedMillis;
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * p6spy 가 감싼 JDBC 실행마다 호출된다. (p6spy 스타터가 JdbcEventListener 빈을 등록해준다)
+ * 로그 출력 여부와 상관없이 SQL 수/실행 시간을 집계하고, 느린 쿼리는 바인딩 값까지 남긴다.
+ * sql-log-sample-rate 가 N 이면 N 건 중 1 건만 바인딩 값과 함께 로그로 남긴다. (운영 프로파일에서 p6spy 로그 대신 사용)
+ * ---------------------------------------------------------------------------------
+ * MeterRegistry 를 생성자로 주입받으면 DataSource 가 p6spy 로 감싸지기 전에 만들어지므로
+ * MeterBinder 로 나중에 등록한다.
+ */
+@Slf4j
+@Component
+public class SqlMetricsListener extends SimpleJdbcEventListener implements MeterBinder {
+
+    private final SlowQueryLog slowQueryLog;
+    private final long slowQueryNanos;
+    private final int sampleRate;
+    private final AtomicLong executed = new AtomicLong();
+    private volatile Timer success;
+    private volatile Timer error;
+
+    public SqlMetricsListener(SlowQueryLog slowQueryLog,
+                              @Value("${member.metrics.slow-query-threshold:200ms}") Duration slowQueryThreshold,
+                              @Value("${member.metrics.sql-log-sample-rate:0}") int sampleRate) {
+        this.slowQueryLog = slowQueryLog;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        error = Timer.builder("jdbc.statements").tag("outcome", "error").register(registry);
+        success = Timer.builder("jdbc.statements").tag("outcome", "success").register(registry);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlStatementCounter.increment();
+        Timer timer = e == null ? success : error;
+        if (timer != null) {
+            timer.record(timeElapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (timeElapsedNanos >= slowQueryNanos) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos);
+            String sql = statementInformation.getSqlWithValues();
+            slowQueryLog.add(new SlowQueryLog.SlowQuery(Instant.now(), elapsedMillis, sql));
+            log.warn("slow query {}ms: {}", elapsedMillis, sql);
+        } else if (sampleRate > 0 && executed.incrementAndGet() % sampleRate == 0) {
+            log.info("sampled query {}ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), statementInformation.getSqlWithValues());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 구간(요청, 리포지토리 호출)별로 실행된 SQL 수
+ * ------------------------------------------
+ * open() 으로 현재 스레드에 구간을 열고, 구간 안에서 실행된 SQL 은 그 구간과 바깥 구간 모두에 센다.
+ * 다른 스레드로 넘기는 작업을 propagate() 로 감싸면 그 스레드에서 실행된 SQL 도 넘긴 쪽 구간에 센다.
+ * (searchAsync/searchParallelStream 의 Executor, MVC 비동기 응답 - 구간을 닫은 뒤에 실행돼도 구간 객체에 쌓인다)
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    static void increment() {
+        for (Scope scope = current.get(); scope != null; scope = scope.parent) {
+            scope.count.incrementAndGet();
+        }
+    }
+
+    /**
+     * 현재 스레드에 구간을 연다. 같은 스레드에서 close() 해야 바깥 구간으로 돌아간다.
+     */
+    public static Scope open() {
+        Scope scope = new Scope(current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    // 작업을 만든 스레드의 구간을 실행하는 스레드에 잠시 설정한다
+    public static Runnable propagate(Runnable task) {
+        Scope scope = current.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = current.get();
+            current.set(scope);
+            try {
+                task.run();
+            } finally {
+                current.set(previous);
+            }
+        };
+    }
+
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Scope scope = current.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = current.get();
+            current.set(scope);
+            try {
+                return task.get();
+            } finally {
+                current.set(previous);
+            }
+        };
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final AtomicLong count = new AtomicLong();
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        @Override
+        public void close() {
+            current.set(parent);
+        }
+    }
+}
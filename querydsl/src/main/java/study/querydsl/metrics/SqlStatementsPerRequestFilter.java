@@ -0,0 +1,91 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP 요청 하나에서 실행된 SQL 수 - http.server.requests.statements
+ * 비동기 응답(StreamingResponseBody, CompletableFuture)은 응답이 끝났을 때 기록한다.
+ * MVC 비동기 작업과 searchAsync/searchParallelStream 작업이 요청 구간을 이어받으므로 다른 스레드의 SQL 도 센다.
+ */
+@Component
+public class SqlStatementsPerRequestFilter extends OncePerRequestFilter implements WebMvcConfigurer {
+
+    private final DistributionSummary statements;
+
+    public SqlStatementsPerRequestFilter(MeterRegistry registry) {
+        this.statements = DistributionSummary.builder("http.server.requests.statements").register(registry);
+    }
+
+    // 기본 Executor 와 같은 SimpleAsyncTaskExecutor 에 요청 구간만 넘긴다 (StreamingResponseBody 는 여기서 실행된다)
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+        executor.setTaskDecorator(SqlStatementCounter::propagate);
+        configurer.setTaskExecutor(executor);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Scope scope = SqlStatementCounter.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordOnCompletion(scope));
+            } else {
+                statements.record(scope.count());
+            }
+        }
+    }
+
+    private class RecordOnCompletion implements AsyncListener {
+        private final SqlStatementCounter.Scope scope;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        RecordOnCompletion(SqlStatementCounter.Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void record() {
+            if (recorded.compareAndSet(false, true)) {
+                statements.record(scope.count());
+            }
+        }
+    }
+}
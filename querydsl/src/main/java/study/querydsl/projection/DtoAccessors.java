@@ -0,0 +1,143 @@
+package study.querydsl.projection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * DTO 클래스별 생성자/setter/필드 접근자 - 처음 요청할 때 한 번만 만들고 클래스마다 캐시한다.
+ * 기본 생성자와 setter 는 LambdaMetafactory 로 만든 람다(직접 호출과 같은 비용),
+ * 필드는 LambdaMetafactory 대상이 될 수 없으므로 MethodHandle 을 (Object, Object) 타입으로 맞춰 쓴다.
+ */
+final class DtoAccessors {
+
+    private static final ClassValue<DtoAccessors> CACHE = new ClassValue<>() {
+        @Override
+        protected DtoAccessors computeValue(Class<?> type) {
+            return new DtoAccessors(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final MethodHandles.Lookup lookup;
+    private volatile Supplier<Object> constructor;
+    // 없는 프로퍼티는 Optional.empty() 로 캐시
+    private final Map<String, Optional<BiConsumer<Object, Object>>> setters = new ConcurrentHashMap<>();
+    private final Map<String, Optional<BiConsumer<Object, Object>>> fields = new ConcurrentHashMap<>();
+
+    private DtoAccessors(Class<?> type) {
+        this.type = type;
+        try {
+            this.lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot access " + type.getName(), e);
+        }
+    }
+
+    static DtoAccessors of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    Supplier<Object> constructor() {
+        Supplier<Object> result = constructor;
+        if (result == null) {
+            result = createConstructor();
+            constructor = result;
+        }
+        return result;
+    }
+
+    Optional<BiConsumer<Object, Object>> setter(String property) {
+        return setters.computeIfAbsent(property, this::createSetter);
+    }
+
+    Optional<BiConsumer<Object, Object>> field(String property) {
+        return fields.computeIfAbsent(property, this::createField);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Supplier<Object> createConstructor() {
+        try {
+            MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    handle,
+                    MethodType.methodType(type));
+            return (Supplier<Object>) site.getTarget().invokeExact();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " has no default constructor", e);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot create constructor of " + type.getName(), e);
+        }
+    }
+
+    // Projections.bean 과 같이 set + 프로퍼티 이름(첫 글자 대문자), 파라미터 1 개인 public 메서드
+    @SuppressWarnings("unchecked")
+    private Optional<BiConsumer<Object, Object>> createSetter(String property) {
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Method method : type.getMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != 1
+                    || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            try {
+                MethodHandle handle = lookup.unreflect(method);
+                Class<?> parameter = MethodType.methodType(method.getParameterTypes()[0]).wrap().returnType();
+                // (Object, Object) -> (DTO, 박싱 타입) 캐스트, 원시 타입이면 언박싱, 반환 값은 버린다
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, type, parameter));
+                return Optional.of((BiConsumer<Object, Object>) site.getTarget().invokeExact());
+            } catch (LambdaConversionException | IllegalAccessException e) {
+                throw new IllegalArgumentException("cannot access " + type.getName() + "." + name, e);
+            } catch (Throwable e) {
+                throw new IllegalStateException("cannot create setter " + type.getName() + "." + name, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Projections.fields 와 같이 상위 클래스까지 선언된 필드를 찾는다 (private 포함)
+    private Optional<BiConsumer<Object, Object>> createField(String property) {
+        for (Class<?> owner = type; owner != Object.class; owner = owner.getSuperclass()) {
+            try {
+                Field field = owner.getDeclaredField(property);
+                if (Modifier.isStatic(field.getModifiers())) {
+                    return Optional.empty();
+                }
+                field.setAccessible(true); // final 필드도 Projections.fields 처럼 쓸 수 있게
+                MethodHandle handle = MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                        .unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                return Optional.of((bean, value) -> {
+                    try {
+                        handle.invokeExact(bean, value);
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            } catch (NoSuchFieldException e) {
+                // 상위 클래스에서 계속 찾는다
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("cannot access " + owner.getName() + "." + property, e);
+            }
+        }
+        return Optional.empty();
+    }
+}
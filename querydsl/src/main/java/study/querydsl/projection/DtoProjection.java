@@ -0,0 +1,128 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Visitor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * QBean 과 같은 바인딩 규칙(경로 이름 또는 별칭 = 프로퍼티 이름)으로 DTO 를 만든다.
+ * 접근자는 생성할 때 DtoAccessors 에서 한 번 찾아 두므로 newInstance 는 람다 호출만 한다.
+ * QBean 처럼 null 값은 설정하지 않고, DTO 에 없는 프로퍼티는 무시한다.
+ * 접근자(람다)는 직렬화하지 않고 역직렬화할 때 다시 찾는다.
+ * hashCode 는 ExpressionBase 의 final 구현(타입 + args)을 쓴다 - equals 가 같으면 타입과 args 도 같으므로 hashCode 도 같다.
+ */
+public class DtoProjection<T> extends FactoryExpressionBase<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean fieldAccess;
+    private final List<String> properties;
+    private final List<Expression<?>> args;
+    private transient Supplier<Object> constructor;
+    private transient BiConsumer<Object, Object>[] accessors;
+
+    DtoProjection(Class<? extends T> type, boolean fieldAccess, Expression<?>... exprs) {
+        super(type);
+        this.fieldAccess = fieldAccess;
+        List<String> properties = new ArrayList<>(exprs.length);
+        List<Expression<?>> args = new ArrayList<>(exprs.length);
+        for (Expression<?> expr : exprs) {
+            bind(expr, properties, args);
+        }
+        this.properties = Collections.unmodifiableList(properties);
+        this.args = Collections.unmodifiableList(args);
+        bindAccessors();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bindAccessors() {
+        DtoAccessors accessors = DtoAccessors.of(getType());
+        this.constructor = accessors.constructor();
+        this.accessors = new BiConsumer[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            String property = properties.get(i);
+            this.accessors[i] = (fieldAccess ? accessors.field(property) : accessors.setter(property)).orElse(null);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        bindAccessors();
+    }
+
+    // QBean.createBindings 와 같다 - 별칭이 붙은 DTO 프로젝션(중첩)은 별칭을 떼고 인자로 쓴다
+    private static void bind(Expression<?> expr, List<String> properties, List<Expression<?>> args) {
+        if (expr instanceof Path) {
+            properties.add(((Path<?>) expr).getMetadata().getName());
+            args.add(expr);
+            return;
+        }
+        if (expr instanceof Operation && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+            Operation<?> operation = (Operation<?>) expr;
+            if (operation.getArg(1) instanceof Path) {
+                properties.add(((Path<?>) operation.getArg(1)).getMetadata().getName());
+                args.add(operation.getArg(0) instanceof FactoryExpression ? operation.getArg(0) : operation);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported expression " + expr);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... values) {
+        Object bean = constructor.get();
+        for (int i = 0; i < values.length; i++) {
+            BiConsumer<Object, Object> accessor = accessors[i];
+            if (accessor != null && values[i] != null) {
+                accessor.accept(bean, values[i]);
+            }
+        }
+        return (T) bean;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    /**
+     * 다른 DTO 프로젝션 안에서 쓸 때 (QBean.as 와 같다)
+     */
+    public Expression<T> as(String alias) {
+        return ExpressionUtils.as(this, alias);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DtoProjection)) {
+            return false;
+        }
+        DtoProjection<?> other = (DtoProjection<?>) obj;
+        return getType().equals(other.getType())
+                && fieldAccess == other.fieldAccess
+                && properties.equals(other.properties)
+                && args.equals(other.args);
+    }
+}
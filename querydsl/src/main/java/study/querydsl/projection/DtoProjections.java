@@ -0,0 +1,31 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+
+/**
+ * Projections.bean / Projections.fields 대신 쓸 수 있는 DTO 프로젝션
+ * -----------------------------------------------------------------
+ * 바인딩 규칙(프로퍼티 이름 = 경로 이름 또는 as 별칭)은 같고, 매 row 마다 리플렉션으로 호출하지 않고
+ * DTO 클래스별로 한 번 만든 람다/MethodHandle 로 값을 넣는다. (ProjectionMappingBenchmark 참고)
+ *
+ * queryFactory.select(DtoProjections.fields(UserDto.class, member.username.as("name"), member.age))
+ */
+public final class DtoProjections {
+
+    private DtoProjections() {
+    }
+
+    /**
+     * 기본 생성자 + setter (Projections.bean)
+     */
+    public static <T> DtoProjection<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        return new DtoProjection<>(type, false, exprs);
+    }
+
+    /**
+     * 기본 생성자 + 필드 직접 접근, private/final 필드 포함 (Projections.fields)
+     */
+    public static <T> DtoProjection<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        return new DtoProjection<>(type, true, exprs);
+    }
+}
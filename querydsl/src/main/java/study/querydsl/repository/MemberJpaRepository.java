@@ -1,26 +1,61 @@
 package study.querydsl.repository;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
 
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 조회는 readOnly 트랜잭션으로 실행한다. (호출한 쪽 트랜잭션이 있으면 그대로 참여)
+ * readOnly 면 FlushMode.MANUAL + 세션 기본 read-only 라 로딩한 엔티티의 스냅샷을 만들지 않고 flush 때 더티 체킹도 하지 않는다.
+ * 읽기 복제본이 설정되어 있으면 복제본에서 조회한다. (ReadWriteDataSourceConfig)
+ */
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final int batchSize;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.batchSize = batchSize;
     }
 
+    @Transactional
     public void save(Member member) {
         em.persist(member);
     }
 
+    /**
+     * 대량 저장 - batchSize 건마다 flush(JDBC 배치 insert) 후 clear 해서 영속성 컨텍스트를 작게 유지한다.
+     * clear 하므로 호출 전의 변경 내용도 함께 flush 되고, 저장한 엔티티를 포함한 모든 엔티티는 준영속 상태가 된다.
+     * @return 저장한 건수
+     */
+    @Transactional
+    public long saveAll(Iterable<Member> members) {
+        long count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            if (++count % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        return count;
+    }
+
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
@@ -37,4 +72,20 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    // 팀이 없는 회원도 조회되도록 left join 으로 페치 조인
+    public List<Member> findAllFetchTeam() {
+        return queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .fetch();
+    }
+
+    public List<Member> findByUsernameFetchTeam(String username) {
+        return queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(member.username.eq(username))
+                .fetch();
+    }
+
 }
@@ -0,0 +1,194 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.metrics.SqlStatementCounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 파티션별 조회를 Executor 스레드에서 동시에 실행하고 결과를 하나의 Stream 으로 합친다. (searchParallelStream)
+ * ------------------------------------------------------------------------------
+ * 파티션은 읽은 row 를 묶음(chunk)으로 크기가 제한된 버퍼에 넣고, 버퍼가 차면 소비하는 쪽이 꺼낼 때까지 기다린다. (배압)
+ * row 마다 넘기면 큐 락/스레드 깨우기 비용이 row 수만큼 든다.
+ * ordered 면 파티션마다 버퍼를 두고 파티션 순서대로 꺼낸다 - 파티션이 서로 겹치지 않는 id 구간이고
+ * 각 파티션이 id 순이면 전체도 id 순이다. 아니면 모든 파티션이 버퍼 하나를 같이 쓰고 도착한 순서대로 꺼낸다.
+ * 파티션이 실패하면 그 예외를 소비하는 쪽에서 다시 던지고, Stream 을 close 하면 남은 파티션은 다음 묶음을 넘길 때 멈춘다.
+ * 모든 파티션이 끝나면 마지막 row 를 넘긴 뒤 소비하는 쪽 스레드에서 afterLast 를 실행한다. (예외를 던지면 소비하는 쪽으로)
+ */
+class MemberParallelScan implements Iterator<MemberTeamDto> {
+
+    /**
+     * 한 파티션의 조회 - 읽은 row 를 sink 에 넘긴다. (sink 는 버퍼가 찰 때 막히고, close 되면 CancellationException)
+     */
+    interface Partition {
+        void scan(Consumer<MemberTeamDto> sink);
+    }
+
+    private static final Object END = new Object();
+    private static final long OFFER_WAIT_MILLIS = 100;
+    private static final int CHUNKS_PER_BUFFER = 4;
+
+    private final List<BlockingQueue<Object>> buffers;
+    private final boolean ordered;
+    private final int chunkSize;
+    private final Runnable afterLast;
+    private int remaining;
+    private int current;
+    private Iterator<MemberTeamDto> chunk = Collections.emptyIterator();
+    private boolean finished;
+    private volatile boolean closed;
+
+    private MemberParallelScan(int partitions, int bufferSize, boolean ordered, Runnable afterLast) {
+        this.ordered = ordered;
+        this.afterLast = afterLast;
+        this.remaining = partitions;
+        this.chunkSize = Math.max(1, bufferSize / CHUNKS_PER_BUFFER);
+        this.buffers = new ArrayList<>(partitions);
+        BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<>(CHUNKS_PER_BUFFER * partitions);
+        for (int i = 0; i < partitions; i++) {
+            buffers.add(ordered ? new ArrayBlockingQueue<>(CHUNKS_PER_BUFFER) : shared);
+        }
+    }
+
+    /**
+     * @param bufferSize 파티션 하나가 소비하는 쪽보다 앞서 읽어 둘 수 있는 row 수 (bufferSize / 4 건씩 넘긴다)
+     * @param afterLast 모든 파티션이 실패 없이 끝난 뒤 한 번 실행한다. (close 하거나 파티션이 실패하면 실행하지 않는다)
+     */
+    static Stream<MemberTeamDto> stream(List<Partition> partitions, int bufferSize, boolean ordered, Executor executor,
+                                        Runnable afterLast) {
+        MemberParallelScan scan = new MemberParallelScan(partitions.size(), bufferSize, ordered, afterLast);
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                Partition partition = partitions.get(i);
+                BlockingQueue<Object> buffer = scan.buffers.get(i);
+                // 파티션의 SQL 도 호출한 쪽 구간(리포지토리 메트릭, 요청)에 센다
+                executor.execute(SqlStatementCounter.propagate(() -> scan.run(partition, buffer)));
+            }
+        } catch (RejectedExecutionException e) {
+            scan.close();
+            throw e;
+        }
+        int characteristics = ordered ? Spliterator.ORDERED | Spliterator.NONNULL : Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scan, characteristics), false)
+                .onClose(scan::close);
+    }
+
+    private void run(Partition partition, BlockingQueue<Object> buffer) {
+        try {
+            if (!closed) {
+                List<MemberTeamDto> rows = new ArrayList<>(chunkSize);
+                partition.scan(row -> {
+                    rows.add(row);
+                    if (rows.size() == chunkSize) {
+                        put(buffer, new ArrayList<>(rows));
+                        rows.clear();
+                    }
+                });
+                if (!rows.isEmpty()) {
+                    put(buffer, rows);
+                }
+            }
+            put(buffer, END);
+        } catch (CancellationException e) {
+            // close 됨 - 더 읽지 않는다
+        } catch (Throwable e) {
+            try {
+                put(buffer, new Failure(e));
+            } catch (CancellationException ignored) {
+            }
+        }
+    }
+
+    // close 된 뒤에는 버퍼가 비워지지 않으므로 기다리지 않고 끝낸다
+    private void put(BlockingQueue<Object> buffer, Object element) {
+        try {
+            while (!buffer.offer(element, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        while (!chunk.hasNext() && remaining > 0) {
+            Object element = take(buffers.get(current));
+            if (element == END) {
+                remaining--;
+                if (ordered) {
+                    current++;
+                }
+            } else if (element instanceof Failure) {
+                close();
+                throw ((Failure) element).rethrow();
+            } else {
+                chunk = ((List<MemberTeamDto>) element).iterator();
+            }
+        }
+        if (!chunk.hasNext() && !finished) {
+            finished = true;
+            afterLast.run();
+        }
+        return chunk.hasNext();
+    }
+
+    @Override
+    public MemberTeamDto next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.next();
+    }
+
+    private Object take(BlockingQueue<Object> buffer) {
+        try {
+            return buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CancellationException();
+        }
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    private static class Failure {
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+
+        RuntimeException rethrow() {
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return new IllegalStateException(cause);
+        }
+    }
+}
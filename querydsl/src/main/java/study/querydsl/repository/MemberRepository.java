@@ -1,12 +1,25 @@
 package study.querydsl.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 
 import java.util.List;
 
-public interface MemberRepository extends JpaRepository<Member,Long> {
+// 인터페이스에 선언한 쿼리 메서드도 readOnly 트랜잭션으로 (save/delete 등은 SimpleJpaRepository 설정을 따른다)
+@Transactional(readOnly = true)
+public interface MemberRepository extends JpaRepository<Member,Long>, MemberRepositoryCustom {
 
-    List<Member> findByUserName(String username);
+    List<Member> findByUsername(String username);
+
+    // 엔티티 그래프 - team 을 페치 조인으로 함께 조회
+    @EntityGraph(attributePaths = "team")
+    @Query("select m from Member m")
+    List<Member> findAllWithTeam();
+
+    @EntityGraph(attributePaths = "team")
+    List<Member> findWithTeamByUsername(String username);
 
 }
@@ -1,12 +1,95 @@
 package study.querydsl.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberKeysetPage;
+import study.querydsl.dto.MemberKeysetSort;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamStatsDto;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
+    /**
+     * search() 를 조회 전용 Executor 의 readOnly 트랜잭션에서 실행한다.
+     * 다른 스레드에서 실행되므로 호출한 쪽 트랜잭션의 flush/커밋되지 않은 변경은 보이지 않는다.
+     * timeout 이 지나면 TimeoutException 으로, cancel() 하면 CancellationException 으로 끝나고 실행 중인 JDBC 쿼리도 취소한다.
+     * Executor 대기열이 가득 차면 RejectedExecutionException 으로 실패한 future 를 반환한다.
+     */
+    CompletableFuture<List<MemberTeamDto>> searchAsync(MemberSearchCondition condition, Duration timeout);
+
+    /**
+     * 결과를 List 로 만들지 않고 DB 커서(ScrollableResults)로 한 건씩 읽는다. (대용량 export 용)
+     * 호출하는 쪽에서 트랜잭션을 열고, 다 읽으면 Stream 을 반드시 close 해야 커서가 닫힌다.
+     * @param fetchSize JDBC 드라이버가 한 번에 가져올 row 수
+     */
+    Stream<MemberTeamDto> searchStream(MemberSearchCondition condition, int fetchSize);
+
+    /**
+     * member_id 범위를 partitions 개(최대 member.export.parallelism 개) 구간으로 나누어 구간마다 export Executor 스레드의 readOnly 트랜잭션(커넥션)에서 조회하고 하나의 Stream 으로 합친다.
+     * 파티션은 fetchSize 만큼만 앞서 읽고 기다리므로 소비하는 속도보다 빨리 메모리에 쌓이지 않는다. 다 읽으면 Stream 을 반드시 close 해야 한다.
+     * 일관성: 구간은 시작할 때 조회한 최소~최대 member_id 로 닫혀 있고 서로 겹치지 않는다. (시작한 뒤 저장된 더 큰 id 는 나오지 않는다)
+     * 파티션은 트랜잭션(커넥션)이 달라 DB 가 한 스냅샷을 보여 주지 않으므로 변경 표시(Member/Team.changeStamp)로 확인한다.
+     * 시작할 때와 모든 파티션이 끝난 뒤 조건에 맞는 회원의 (건수, id 합, 회원/팀 changeStamp 합)을 비교해서 다르면
+     * 마지막 row 뒤에 OptimisticLockingFailureException - 이미 받은 row 는 한 시점의 결과가 아니므로 버리고 다시 조회한다.
+     * 같으면 그 사이에 바뀐 회원/팀이 없으므로 모든 row 가 시작 시점의 상태다.
+     * - changeStamp 를 바꾸지 않는 SQL 수정, 여러 변경이 합계를 정확히 상쇄하는 경우는 알아채지 못한다.
+     * - 조건에 맞는 회원이 자주 바뀌면 계속 실패한다 - 그럴 때는 한 트랜잭션으로 읽는 searchStream().
+     * 다른 스레드에서 조회하므로 호출한 쪽 트랜잭션의 flush/커밋되지 않은 변경은 보이지 않는다.
+     * @param ordered true 면 member.id 순, false 면 파티션에서 읽은 순서대로
+     */
+    Stream<MemberTeamDto> searchParallelStream(MemberSearchCondition condition, int partitions, int fetchSize, boolean ordered);
+
+    /**
+     * search() 와 같은 결과를 row 객체 없이 열별 원시 타입 배열로 조회한다. (대량 조회 후 집계/순회용)
+     * JDBC ResultSet 에서 바로 채우고 search() 캐시는 쓰지 않는다. 팀은 사전 인코딩 (MemberTeamColumns 참고)
+     * username 은 EXACT 만 지원한다. PREFIX/CONTAINS 면 IllegalArgumentException - 리포지토리 예외 변환으로 InvalidDataAccessApiUsageException
+     * @param fetchSize JDBC 드라이버가 한 번에 가져올 row 수 (배열 초기 크기로도 쓴다)
+     */
+    MemberTeamColumns searchColumns(MemberSearchCondition condition, int fetchSize);
+
+    /**
+     * offset 페이징 - 첫/마지막 페이지에서 content 크기로 total 을 알 수 있으면 count 쿼리를 생략한다.
+     * pageable 정렬은 MemberTeamDto 속성(memberId, username, age, teamId, teamName)만 받고 같은 값은 memberId 순이다. (정렬이 없으면 memberId 순)
+     * 다른 속성이면 IllegalArgumentException - 리포지토리 예외 변환으로 InvalidDataAccessApiUsageException
+     */
+    Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable);
+
+    /**
+     * 키셋(seek) 페이징 - offset 을 쓰지 않으므로 몇 번째 페이지든 비용이 같다.
+     * size 는 1 ~ member.keyset.max-size - 벗어나면 IllegalArgumentException (InvalidDataAccessApiUsageException 으로 변환)
+     * @param cursor 이전 페이지의 nextCursor (첫 페이지는 null)
+     */
+    MemberKeysetPage searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort, String cursor, int size);
+
+    /**
+     * 조건에 맞는 회원을 팀별로 집계한다. (group by 쿼리 한 번, 팀 이름 순)
+     * 팀이 없는 회원은 제외된다.
+     */
+    List<TeamStatsDto> teamStats(MemberSearchCondition condition);
+
+    /**
+     * 조건에 맞는 회원의 나이에 delta 를 더한다. (벌크 update)
+     * 조건에 맞는 회원을 id 순으로 member.bulk.chunk-size 명씩 나누어 실행하고,
+     * 트랜잭션 밖에서 호출하면 chunk 마다 커밋해서 락을 오래 잡지 않는다. (호출한 쪽 트랜잭션이 있으면 그 안에서 실행)
+     * 호출한 쪽 트랜잭션 안에서는 실행 전에 flush, 끝난 뒤에 clear 하므로 그 영속성 컨텍스트의 엔티티는 준영속이 된다.
+     * search() 캐시, 팀 요약(켜져 있으면), 2차 캐시(Team.members)도 함께 무효화/갱신한다.
+     * @return 변경된 회원 수
+     */
+    long bulkAddAge(MemberSearchCondition condition, int delta);
+
+    /**
+     * 조건에 맞는 회원을 삭제한다. 실행 방식은 bulkAddAge 와 같다.
+     * 조건이 하나도 없으면 IllegalArgumentException - 리포지토리 예외 변환으로 InvalidDataAccessApiUsageException (전체 삭제는 deleteAllInBatch)
+     * @return 삭제된 회원 수
+     */
+    long bulkDeleteByCondition(MemberSearchCondition condition);
 
 }
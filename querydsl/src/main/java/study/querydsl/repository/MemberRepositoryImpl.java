@@ -1,47 +1,597 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberKeysetPage;
+import study.querydsl.dto.MemberKeysetSort;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.QTeamStatsDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.metrics.SqlStatementCounter;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.isEmpty;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
-
+// 모두 조회 메서드 - readOnly 트랜잭션 (MemberJpaRepository 참고)
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchQueryTemplates searchTemplates;
+    private final ObjectProvider<MemberSqlSearch> sqlSearch;
+    private final MemberUsernameIndex usernameIndex;
+    private final TransactionTemplate readOnlyTx;
+    private final ExecutorService queryExecutor;
+    private final ExecutorService exportExecutor;
+    private final TransactionTemplate writeTx;
+    private final ObjectProvider<TeamSummaryMaintainer> teamSummaryMaintainer;
+    private final int bulkChunkSize;
+    private final int keysetMaxSize;
+    private final int exportParallelism;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, MemberSearchCache searchCache,
+                                MemberSearchQueryTemplates searchTemplates,
+                                ObjectProvider<MemberSqlSearch> sqlSearch,
+                                MemberUsernameIndex usernameIndex,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("memberQueryExecutor") ExecutorService queryExecutor,
+                                @Qualifier("memberExportExecutor") ExecutorService exportExecutor,
+                                ObjectProvider<TeamSummaryMaintainer> teamSummaryMaintainer,
+                                @Value("${member.bulk.chunk-size:1000}") int bulkChunkSize,
+                                @Value("${member.keyset.max-size:1000}") int keysetMaxSize,
+                                @Value("${member.export.parallelism:4}") int exportParallelism) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchCache = searchCache;
+        this.searchTemplates = searchTemplates;
+        this.sqlSearch = sqlSearch;
+        this.usernameIndex = usernameIndex;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.queryExecutor = queryExecutor;
+        this.exportExecutor = exportExecutor;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.teamSummaryMaintainer = teamSummaryMaintainer;
+        this.bulkChunkSize = bulkChunkSize;
+        this.keysetMaxSize = keysetMaxSize;
+        this.exportParallelism = exportParallelism;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
+        // flush 되지 않은 변경이 있으면 auto flush 후 DB 에서 읽어야 결과가 맞다
+        if (mayHaveUnflushedChanges()) {
+            return fetchSearch(condition);
+        }
+        return searchCache.get(condition, () -> fetchSearch(condition));
+    }
+
+    /**
+     * Session.isDirty() 는 관리 중인 엔티티를 모두 dirty check 하므로 (auto flush 와 같은 비용) 쓰지 않는다.
+     * setter 변경은 flush 전까지 인터셉터/ActionQueue 에 보이지 않으므로, 영속성 컨텍스트에 엔티티가 하나라도 있으면
+     * 변경이 있을 수 있다고 본다. (O(1) - 리포지토리가 연 트랜잭션은 영속성 컨텍스트가 비어 있다)
+     * FlushMode.MANUAL(readOnly 트랜잭션)이면 조회 전에 flush 되지 않으므로 없다고 본다.
+     */
+    private boolean mayHaveUnflushedChanges() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        return session.getHibernateFlushMode() != FlushMode.MANUAL
+                && session.getPersistenceContextInternal().getNumberOfManagedEntities() > 0;
+    }
+
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition) {
+        return fetchSearch(condition, 0);
+    }
+
+    // 조건 shape 별로 미리 만들어 둔 JPQL 에 파라미터만 바인딩 (member.search.engine=sql 이면 Querydsl SQL)
+    // timeoutSeconds 는 JDBC Statement 타임아웃 (0 이면 없음)
+    @SuppressWarnings("unchecked")
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition, int timeoutSeconds) {
+        MemberSqlSearch sql = sqlSearch.getIfAvailable();
+        if (sql == null || !MemberSearchQueryTemplates.supports(condition)) {
+            Query query = searchQuery(condition);
+            if (timeoutSeconds > 0) {
+                query.setHint(QueryHints.TIMEOUT_HIBERNATE, timeoutSeconds);
+            }
+            return query.getResultList();
+        }
+        // JDBC 로 직접 실행하므로 auto flush 가 없다
+        if (mayHaveUnflushedChanges()) {
+            em.flush();
+        }
+        return sql.search(condition, timeoutSeconds);
+    }
+
+    // 템플릿은 username 일치 조건만 - PREFIX/CONTAINS 는 동적 쿼리
+    private Query searchQuery(MemberSearchCondition condition) {
+        if (MemberSearchQueryTemplates.supports(condition)) {
+            return searchTemplates.createQuery(em, condition);
+        }
+        return selectMemberTeam(condition)
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .createQuery();
+    }
+
+    // 작업 제출만 하므로 트랜잭션(커넥션)을 열지 않는다
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CompletableFuture<List<MemberTeamDto>> searchAsync(MemberSearchCondition condition, Duration timeout) {
+        AsyncSearch search = new AsyncSearch(condition, timeout);
+        CompletableFuture<List<MemberTeamDto>> future;
+        try {
+            // 실행 스레드의 SQL 도 호출한 쪽 구간(리포지토리 메트릭, 요청)에 센다
+            future = CompletableFuture.supplyAsync(SqlStatementCounter.propagate(search::run), queryExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // 시작 전에 취소되면 실행하지 않고, 실행 중이면 JDBC Statement 를 취소한다
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        search.cancel();
+                    }
+                });
+        return future;
+    }
+
+    private class AsyncSearch {
+        private final MemberSearchCondition condition;
+        private final long deadline;
+        private Session session; // this 로 동기화
+        private boolean cancelled;
+
+        AsyncSearch(MemberSearchCondition condition, Duration timeout) {
+            this.condition = condition;
+            this.deadline = System.nanoTime() + timeout.toNanos();
+        }
+
+        List<MemberTeamDto> run() {
+            // 대기열에서 취소/타임아웃됐으면 트랜잭션을 열지 않는다 (커넥션을 잡지 않도록)
+            remainingSeconds();
+            return readOnlyTx.execute(status -> searchCache.get(condition, () -> {
+                // 취소 확인과 세션 등록을 같은 락에서 - cancel() 은 둘 중 하나를 반드시 본다
+                int timeoutSeconds;
+                synchronized (this) {
+                    timeoutSeconds = remainingSeconds();
+                    session = em.unwrap(Session.class);
+                }
+                try {
+                    // 문장이 실행되기 전에 취소되면 cancelQuery() 가 취소할 문장이 없으므로,
+                    // DB 쪽 타임아웃(Statement.setQueryTimeout, 초 단위)을 남은 시간으로 줘서 마감을 넘겨 실행되지 않게 한다
+                    // (member.search.engine=sql 이면 Hibernate 가 실행하지 않으므로 cancelQuery() 대신 이 타임아웃으로 끝난다)
+                    return fetchSearch(condition, timeoutSeconds);
+                } finally {
+                    synchronized (this) {
+                        session = null;
+                    }
+                }
+            }));
+        }
+
+        // 취소됐거나 마감이 지났으면 CancellationException
+        private synchronized int remainingSeconds() {
+            long remainingNanos = deadline - System.nanoTime();
+            if (cancelled || remainingNanos <= 0) {
+                throw new CancellationException();
+            }
+            return (int) Math.max(1, (remainingNanos + 999_999_999) / 1_000_000_000);
+        }
+
+        void cancel() {
+            Session running;
+            synchronized (this) {
+                cancelled = true;
+                running = session;
+            }
+            if (running != null) {
+                running.cancelQuery();
+            }
+        }
+    }
+
+    @Override
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition, int fetchSize) {
+        // DTO 로 바로 조회하므로 영속성 컨텍스트에 엔티티가 쌓이지 않는다
+        return selectMemberTeam(condition)
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .stream();
+    }
+
+    // 파티션마다 별도 스레드의 트랜잭션에서 실행하므로 호출한 스레드에서는 id 범위와 시작 시점의 변경 표시 합만 조회한다
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Stream<MemberTeamDto> searchParallelStream(MemberSearchCondition condition, int partitions,
+                                                      int fetchSize, boolean ordered) {
+        if (partitions < 1 || fetchSize < 1) {
+            throw new IllegalArgumentException("partitions and fetchSize must be positive: " + partitions + ", " + fetchSize);
+        }
+        // Executor 스레드보다 많은 파티션은 대기열에서 기다릴 뿐이고 파티션마다 버퍼를 잡는다
+        int scanPartitions = Math.min(partitions, exportParallelism);
+        Tuple range = readOnlyTx.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+        Long min = range.get(member.id.min());
+        Long max = range.get(member.id.max());
+        if (min == null) {
+            return Stream.empty();
+        }
+        // 조건은 한 번만 만든다 - username 색인 후보가 도중에 바뀌어도 파티션과 변경 확인이 같은 조건으로 조회한다
+        Predicate[] where = {usernameMatches(condition),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())};
+        List<Object> before = exportFingerprint(condition, where, min, max);
+
+        // 구간 크기는 올림 - 회원 수보다 파티션이 많으면 구간 수가 줄어든다
+        long span = max - min + 1;
+        long size = (span + scanPartitions - 1) / scanPartitions;
+        List<MemberParallelScan.Partition> scans = new ArrayList<>();
+        for (long start = min; start <= max; start += size) {
+            long from = start;
+            long to = Math.min(start + size - 1, max);
+            scans.add(sink -> readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<MemberTeamDto> rows = partitionQuery(condition, where, from, to, ordered, fetchSize).stream()) {
+                    rows.forEach(sink);
+                }
+            }));
+        }
+        // 모든 파티션이 끝난 뒤 합이 시작할 때와 같으면 그 사이에 바뀐 회원이 없다 - 모든 파티션이 시작 시점의 상태를 읽었다
+        return MemberParallelScan.stream(scans, fetchSize, ordered, exportExecutor, () -> {
+            List<Object> after = exportFingerprint(condition, where, min, max);
+            if (!before.equals(after)) {
+                throw new OptimisticLockingFailureException(
+                        "members changed during the partitioned export: " + before + " -> " + after);
+            }
+        });
+    }
+
+    private JPAQuery<MemberTeamDto> partitionQuery(MemberSearchCondition condition, Predicate[] where,
+                                                   long from, long to, boolean ordered, int fetchSize) {
+        JPAQuery<MemberTeamDto> query = selectMemberTeam(condition)
+                .where(member.id.between(from, to))
+                .where(where)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true);
+        return ordered ? query.orderBy(member.id.asc()) : query;
+    }
+
+    /**
+     * 내보낼 회원의 (건수, id 합, 회원 changeStamp 합, 팀 changeStamp 합) - 쿼리 하나로 읽으므로 한 시점의 값이다.
+     * 회원/팀을 수정하면 changeStamp 가 다른 값이 되고, 삭제/추가되거나 조건에서 빠지고 들어오면 건수나 id 합이 바뀐다. (id 는 재사용하지 않는다)
+     */
+    private List<Object> exportFingerprint(MemberSearchCondition condition, Predicate[] where, long min, long max) {
+        Tuple fingerprint = readOnlyTx.execute(status -> joinTeam(queryFactory
+                        .select(member.count(), member.id.sum(), member.changeStamp.sum(), team.changeStamp.sum())
+                        .from(member), condition)
+                .where(member.id.between(min, max))
+                .where(where)
+                .fetchOne());
+        return Arrays.asList(fingerprint.toArray());
+    }
+
+    @Override
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition, int fetchSize) {
+        // JDBC 로 직접 읽으므로 auto flush 가 없다
+        if (mayHaveUnflushedChanges()) {
+            em.flush();
+        }
+        return em.unwrap(Session.class).doReturningWork(
+                connection -> searchTemplates.fetchColumns(connection, condition, fetchSize));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = selectMemberTeam(condition)
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .orderBy(pageOrder(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // count 쿼리는 필요할 때만 실행된다 (fetchCount() 는 deprecated)
+        return PageableExecutionUtils.getPage(content, pageable, () -> countQuery(condition).fetchOne());
+    }
+
+    // MemberTeamDto 속성 이름으로 정렬하고, 같은 값은 member.id 순 (페이지 사이에 중복/누락이 없도록)
+    private OrderSpecifier<?>[] pageOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        boolean byId = false;
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = sortPath(order.getProperty());
+            orders.add(order.isAscending() ? path.asc() : path.desc());
+            byId |= path == member.id;
+        }
+        if (!byId) {
+            orders.add(member.id.asc());
+        }
+        return orders.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    private ComparableExpressionBase<?> sortPath(String property) {
+        switch (property) {
+            case "memberId":
+                return member.id;
+            case "username":
+                return member.username;
+            case "age":
+                return member.age;
+            case "teamId":
+                return team.id;
+            case "teamName":
+                return team.name;
+            default:
+                throw new IllegalArgumentException("unsupported sort property: " + property);
+        }
+    }
+
+    // 팀 이름 조건이 있으면 left join 도 결과가 inner join 과 같으므로 inner join 으로 (DB 가 조인 순서를 바꿀 수 있다)
+    private JPAQuery<MemberTeamDto> selectMemberTeam(MemberSearchCondition condition) {
+        return joinTeam(queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
                         member.username,
                         member.age,
                         team.id,
                         team.name))
+                .from(member), condition);
+    }
+
+    private static <T> JPAQuery<T> joinTeam(JPAQuery<T> query, MemberSearchCondition condition) {
+        if (isEmpty(condition.getTeamName())) {
+            return query.leftJoin(member.team, team);
+        }
+        return query.join(member.team, team);
+    }
+
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        JPAQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member);
+        // left join 은 member 건수를 바꾸지 않으므로 팀 조건이 없으면 조인하지 않는다
+        if (!isEmpty(condition.getTeamName())) {
+            query.join(member.team, team);
+        }
+        return query
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+    }
+
+    @Override
+    public MemberKeysetPage searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort, String cursor, int size) {
+        // size + 1 건을 조회하므로 상한이 없으면 limit 가 넘친다
+        if (size < 1 || size > keysetMaxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + keysetMaxSize + ": " + size);
+        }
+        MemberCursor after = cursor == null ? null : MemberCursor.decode(cursor, sort);
+
+        // size + 1 건을 조회해서 다음 페이지 존재 여부를 판단 (count 쿼리 없음)
+        List<MemberTeamDto> content = selectMemberTeam(condition)
+                .where(usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        seekAfter(after))
+                .orderBy(keysetOrder(sort))
+                .limit(size + 1)
+                .fetch();
+
+        if (content.size() <= size) {
+            return new MemberKeysetPage(content, null);
+        }
+        List<MemberTeamDto> page = new ArrayList<>(content.subList(0, size));
+        return new MemberKeysetPage(page, MemberCursor.after(sort, page.get(size - 1)).encode());
+    }
+
+    @Override
+    public List<TeamStatsDto> teamStats(MemberSearchCondition condition) {
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        team.id,
+                        team.name,
+                        member.count(),
+                        member.age.avg(),
+                        member.age.min(),
+                        member.age.max()))
                 .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+                .join(member.team, team)
+                .where(usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .groupBy(team.id, team.name)
+                .orderBy(team.name.asc())
                 .fetch();
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return isEmpty(username) ? null : member.username.eq(username);
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long bulkAddAge(MemberSearchCondition condition, int delta) {
+        Predicate[] where = bulkWhere(condition);
+        return bulk(where, ids -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .set(member.changeStamp, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE)) // 벌크 update 는 @PreUpdate 가 없다
+                .where(ids)
+                .where(where)
+                .execute());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long bulkDeleteByCondition(MemberSearchCondition condition) {
+        Predicate[] where = bulkWhere(condition);
+        if (Arrays.stream(where).allMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("bulk delete requires a condition");
+        }
+        return bulk(where, ids -> queryFactory
+                .delete(member)
+                .where(ids)
+                .where(where)
+                .execute());
+    }
+
+    /**
+     * 조건에 맞는 id 를 chunk 크기씩 키셋으로 (id > 직전 chunk 의 마지막 id) 조회해서 chunk 마다 트랜잭션(호출한 쪽 트랜잭션이 있으면 참여)에서
+     * member_id in (...) 으로 실행한다. 조건에 맞는 회원이 넓은 id 범위에 드문드문 있어도 빈 chunk 가 없다.
+     * 호출한 쪽 영속성 컨텍스트는 첫 chunk 전에 flush, 끝난 뒤에 한 번 clear 한다. (엔티티가 벌크 결과와 다를 수 있다)
+     * 2차 캐시는 하이버네이트가 벌크 연산의 대상 테이블(member)로 비운다. (Team.members region)
+     */
+    private long bulk(Predicate[] where, Function<BooleanExpression, Long> chunk) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.flush(); // 호출한 쪽의 변경을 먼저 반영
+        }
+        long affected = 0;
+        long[] last = {Long.MIN_VALUE};
+        while (true) {
+            Long count = writeTx.execute(status -> {
+                List<Long> ids = queryFactory
+                        .select(member.id)
+                        .from(member)
+                        .where(where)
+                        .where(member.id.gt(last[0]))
+                        .orderBy(member.id.asc())
+                        .limit(bulkChunkSize)
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                last[0] = ids.get(ids.size() - 1);
+                long updated = chunk.apply(member.id.in(ids));
+                searchCache.invalidateAll();
+                return updated;
+            });
+            if (count == null) {
+                break;
+            }
+            affected += count;
+        }
+        // 트랜잭션에 참여했으면 영속성 컨텍스트가 이어지므로 비운다 (아니면 chunk 마다 새 영속성 컨텍스트)
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.clear();
+        }
+        // 벌크 연산은 엔티티 이벤트가 없으므로 요약 테이블은 다시 계산
+        teamSummaryMaintainer.ifAvailable(TeamSummaryMaintainer::rebuild);
+        return affected;
+    }
+
+    // 벌크 update/delete 는 조인할 수 없으므로 팀 이름 조건은 서브쿼리로
+    private Predicate[] bulkWhere(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameMatches(condition),
+                isEmpty(condition.getTeamName()) ? null
+                        : member.team.in(JPAExpressions.selectFrom(team).where(team.name.eq(condition.getTeamName()))),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())};
+    }
+
+    private BooleanExpression seekAfter(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (after.getSort() == MemberKeysetSort.AGE) {
+            // (age, id) > (:age, :id)
+            return member.age.gt(after.getAge())
+                    .or(member.age.eq(after.getAge()).and(member.id.gt(after.getMemberId())));
+        }
+        return member.id.gt(after.getMemberId());
+    }
+
+    private OrderSpecifier<?>[] keysetOrder(MemberKeysetSort sort) {
+        if (sort == MemberKeysetSort.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
+    }
+
+    private BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        String username = condition.getUsername();
+        if (isEmpty(username)) {
+            return null;
+        }
+        switch (condition.getUsernameMatch()) {
+            case PREFIX:
+                return member.username.startsWith(username);
+            case CONTAINS:
+                return usernameContains(username);
+            default:
+                return member.username.eq(username);
+        }
+    }
+
+    // 3-gram 인덱스로 후보 id 를 좁히고 like 로 다시 확인한다 (인덱스는 후보의 상위 집합)
+    private BooleanExpression usernameContains(String username) {
+        // 방금 저장한 회원도 후보에 들어가도록 먼저 flush (엔티티 리스너가 flush 때 색인한다)
+        if (mayHaveUnflushedChanges()) {
+            em.flush();
+        }
+        Set<Long> candidates = usernameIndex.candidates(username);
+        if (candidates == null) {
+            return member.username.contains(username);
+        }
+        return member.id.in(candidates).and(member.username.contains(username));
     }
 
     private BooleanExpression teamNameEq(String teamName) {
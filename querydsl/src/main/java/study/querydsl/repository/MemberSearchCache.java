@@ -0,0 +1,215 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.isEmpty;
+
+/**
+ * MemberSearchCondition 별 search() 결과 캐시
+ * -------------------------------------------
+ * Member/Team 변경은 MemberSearchCacheInterceptor 가 알려주고,
+ * 변경된 row 와 매칭되는 조건의 캐시만 커밋 직후에 무효화한다.
+ * 벌크 연산(JPQL update/delete)은 인터셉터를 거치지 않으므로 실행한 쪽에서 invalidateAll() 을 호출해야 한다.
+ * 캐시된 List 는 모든 호출자가 공유한다 - List 는 수정할 수 없고 row(MemberTeamDto)는 불변이다.
+ * 읽기 복제본 라우팅(member.datasource.read.url)이 켜져 있으면 쓰지 않는다 - 커밋 직후 무효화해도 다음 조회가
+ * 아직 따라오지 못한 복제본에서 읽어 이전 결과를 다시 캐시하고, 그 결과가 ttl 동안 남는다.
+ */
+@Slf4j
+@Component
+public class MemberSearchCache implements MeterBinder {
+
+    // 한 트랜잭션에서 이보다 많은 row 가 바뀌면 (대량 저장 등) 조건별로 비교하지 않고 전부 무효화한다
+    private static final int MAX_PENDING = 1_000;
+
+    private final Cache<Key, List<MemberTeamDto>> cache;
+    private final boolean enabled;
+
+    // 무효화가 일어날 때마다 증가. 조회 시작 후 값이 바뀌었으면 커밋 이전 데이터일 수 있으므로 캐시에 넣지 않는다.
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberSearchCache(@Value("${member.search-cache.enabled:true}") boolean enabled,
+                             @Value("${member.search-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${member.search-cache.ttl:10m}") Duration ttl,
+                             @Value("${member.datasource.read.url:}") String replicaUrl) {
+        this.enabled = enabled && isEmpty(replicaUrl);
+        if (enabled && !this.enabled) {
+            log.info("member search cache disabled: search() reads from the replica (member.datasource.read.url)");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public List<MemberTeamDto> get(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> loader) {
+        // 현재 트랜잭션에서 아직 커밋되지 않은 변경이 있으면 캐시를 쓰지 않는다
+        if (!enabled || TransactionSynchronizationManager.hasResource(this)) {
+            return loader.get();
+        }
+        Key key = new Key(condition);
+        List<MemberTeamDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        List<MemberTeamDto> result = Collections.unmodifiableList(loader.get());
+        cache.asMap().compute(key, (k, old) -> generation.get() == loadedAt ? result : old);
+        return result;
+    }
+
+    public void memberChanged(MemberState state) {
+        invalidateOnCommit(key -> key.matches(state));
+    }
+
+    // 팀 조건이 없는 검색 결과에도 그 팀 회원의 teamName 이 들어 있다
+    public void teamChanged(String teamName) {
+        invalidateOnCommit(key -> key.teamName == null || Objects.equals(key.teamName, teamName));
+    }
+
+    public void invalidateAll() {
+        invalidateOnCommit(key -> true);
+    }
+
+    // cache.gets{result=hit|miss}, cache.evictions 등 (cache=memberSearch)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "memberSearch");
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private void invalidateOnCommit(Predicate<Key> affected) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(Collections.singletonList(affected));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.add(affected);
+    }
+
+    private void invalidate(List<Predicate<Key>> affected) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> affected.stream().anyMatch(p -> p.test(key)));
+    }
+
+    private class Pending implements TransactionSynchronization {
+        private final List<Predicate<Key>> affected = new ArrayList<>();
+        private boolean all;
+
+        void add(Predicate<Key> predicate) {
+            if (all) {
+                return;
+            }
+            affected.add(predicate);
+            if (affected.size() > MAX_PENDING) {
+                all = true;
+                affected.clear();
+                affected.add(key -> true);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberSearchCache.this);
+            if (status == STATUS_COMMITTED) {
+                invalidate(affected);
+            }
+        }
+    }
+
+    /**
+     * 변경 전/후 Member row 의 검색 조건 관련 값
+     * teamKnown 이 false 면 (초기화되지 않은 프록시 등) 팀 이름 조건은 항상 매칭된 것으로 본다.
+     */
+    public static class MemberState {
+        private final String username;
+        private final int age;
+        private final String teamName;
+        private final boolean teamKnown;
+
+        public MemberState(String username, int age, String teamName, boolean teamKnown) {
+            this.username = username;
+            this.age = age;
+            this.teamName = teamName;
+            this.teamKnown = teamKnown;
+        }
+    }
+
+    // search() 는 빈 문자열 조건을 무시하므로 null 로 정규화한다
+    @EqualsAndHashCode
+    private static class Key {
+        private final String username;
+        private final UsernameMatch usernameMatch;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+
+        Key(MemberSearchCondition condition) {
+            this.username = isEmpty(condition.getUsername()) ? null : condition.getUsername();
+            this.usernameMatch = username == null ? null : condition.getUsernameMatch();
+            this.teamName = isEmpty(condition.getTeamName()) ? null : condition.getTeamName();
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+        }
+
+        boolean matches(MemberState state) {
+            return usernameMatches(state.username)
+                    && (teamName == null || !state.teamKnown || teamName.equals(state.teamName))
+                    && (ageGoe == null || state.age >= ageGoe)
+                    && (ageLoe == null || state.age <= ageLoe);
+        }
+
+        private boolean usernameMatches(String value) {
+            if (username == null) {
+                return true;
+            }
+            if (value == null) {
+                return false;
+            }
+            switch (usernameMatch) {
+                case PREFIX:
+                    return value.startsWith(username);
+                case CONTAINS:
+                    return value.contains(username);
+                default:
+                    return username.equals(value);
+            }
+        }
+    }
+}
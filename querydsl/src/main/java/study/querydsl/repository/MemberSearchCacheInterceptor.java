@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Hibernate;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.Type;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 엔티티 insert/update/delete 시점의 변경 전/후 상태를 MemberSearchCache 에 전달한다.
+ * (JPA 엔티티 리스너와 달리 onFlushDirty 에서 변경 전 상태를 알 수 있다)
+ */
+@Component
+public class MemberSearchCacheInterceptor extends EmptyInterceptor implements HibernatePropertiesCustomizer {
+
+    private final MemberSearchCache searchCache;
+
+    public MemberSearchCacheInterceptor(MemberSearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.INTERCEPTOR, this);
+    }
+
+    @Override
+    public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Member) {
+            searchCache.memberChanged(memberState(state, propertyNames));
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+                                String[] propertyNames, Type[] types) {
+        if (previousState == null) {
+            // 변경 전 상태를 모르면 (detached merge 등) 어떤 조건이 영향을 받는지 알 수 없다
+            if (entity instanceof Member || entity instanceof Team) {
+                searchCache.invalidateAll();
+            }
+            return false;
+        }
+        if (entity instanceof Member) {
+            searchCache.memberChanged(memberState(previousState, propertyNames));
+            searchCache.memberChanged(memberState(currentState, propertyNames));
+        } else if (entity instanceof Team) {
+            int name = indexOf(propertyNames, "name");
+            if (!Objects.equals(previousState[name], currentState[name])) {
+                searchCache.teamChanged((String) previousState[name]);
+                searchCache.teamChanged((String) currentState[name]);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        if (entity instanceof Member) {
+            searchCache.memberChanged(memberState(state, propertyNames));
+        } else if (entity instanceof Team) {
+            searchCache.teamChanged((String) state[indexOf(propertyNames, "name")]);
+        }
+    }
+
+    private MemberSearchCache.MemberState memberState(Object[] state, String[] propertyNames) {
+        String username = (String) state[indexOf(propertyNames, "username")];
+        int age = (Integer) state[indexOf(propertyNames, "age")];
+        Team team = (Team) state[indexOf(propertyNames, "team")];
+        if (team == null) {
+            return new MemberSearchCache.MemberState(username, age, null, true);
+        }
+        // 초기화되지 않은 프록시를 flush 도중에 로딩하지 않는다
+        boolean teamKnown = Hibernate.isInitialized(team);
+        return new MemberSearchCache.MemberState(username, age, teamKnown ? team.getName() : null, teamKnown);
+    }
+
+    private int indexOf(String[] propertyNames, String propertyName) {
+        return Arrays.asList(propertyNames).indexOf(propertyName);
+    }
+}
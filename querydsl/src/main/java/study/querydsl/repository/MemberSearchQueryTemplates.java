@@ -0,0 +1,215 @@
+package study.querydsl.repository;
+
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.query.spi.QueryPlanCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UsernameMatch;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.StringJoiner;
+
+import static org.springframework.util.StringUtils.isEmpty;
+
+/**
+ * search() 의 JPQL 템플릿
+ * -----------------------
+ * MemberSearchCondition 의 null/non-null 조합(shape)은 16 가지뿐이므로
+ * shape 별 JPQL 을 한 번만 만들고 HQL 실행 계획도 시작할 때 미리 컴파일해 둔다.
+ * 조회할 때는 where 절 Querydsl 표현식 생성/직렬화 없이 파라미터만 바인딩한다.
+ *
+ * 조인 방식은 팀 이름 조건 여부로만 정한다.
+ * - 팀 이름 조건 없음: member left join team (팀 없는 회원도 조회)
+ * - 팀 이름 조건 있음: member join team - left join 결과도 inner join 과 같다.
+ *   어느 쪽부터 읽을지(팀 이름 인덱스로 팀을 찾고 (team_id, age, username) 인덱스로 회원을 찾는 팀 우선 등)는 DB 옵티마이저가
+ *   통계로 고른다. inner join 은 옵티마이저가 순서를 바꿀 수 있으므로 JPQL 에서 team 을 먼저 쓰는 것은 계획을 바꾸지 않고,
+ *   팀 조건의 선택도를 여기서 추정할 통계도 없다. (JoinPlanBenchmark - 팀 우선으로 고정해도 차이가 오차 범위 안)
+ *
+ * 열 형식 조회(MemberTeamColumns)는 미리 컴파일된 계획의 SQL 과 파라미터 위치를 그대로 JDBC 로 실행한다.
+ * select 절 순서가 생성자 인자 순서(m.id, m.username, m.age, t.id, t.name)와 같다.
+ */
+@Component
+public class MemberSearchQueryTemplates {
+
+    static final int USERNAME = 1;
+    static final int TEAM_NAME = 1 << 1;
+    static final int AGE_GOE = 1 << 2;
+    static final int AGE_LOE = 1 << 3;
+    static final int SHAPES = 1 << 4;
+
+    private static final String[] PARAMETERS = {"username", "teamName", "ageGoe", "ageLoe"};
+
+    private final String[] templates = new String[SHAPES];
+    private final String[] sql = new String[SHAPES];
+    // shape 별 JDBC 파라미터 순서 - 값은 USERNAME 같은 조건 플래그
+    private final int[][] sqlParameters = new int[SHAPES][];
+
+    public MemberSearchQueryTemplates(EntityManagerFactory emf) {
+        QueryPlanCache planCache = emf.unwrap(SessionFactoryImplementor.class).getQueryPlanCache();
+        for (int shape = 0; shape < SHAPES; shape++) {
+            templates[shape] = jpql(shape);
+            HQLQueryPlan plan = planCache.getHQLQueryPlan(templates[shape], false, Collections.emptyMap());
+            sql[shape] = plan.getSqlStrings()[0];
+            sqlParameters[shape] = sqlParameters(plan, shape);
+        }
+    }
+
+    // 이름 있는 파라미터가 SQL 의 몇 번째 ? 인지 (조건 하나가 두 번 쓰일 수도 있다)
+    private static int[] sqlParameters(HQLQueryPlan plan, int shape) {
+        int[] flags = new int[PARAMETERS.length * 2];
+        int count = 0;
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            if ((shape & (1 << i)) == 0) {
+                continue;
+            }
+            int[] locations = plan.getTranslators()[0].getParameterTranslations()
+                    .getNamedParameterInformation(PARAMETERS[i]).getSourceLocations();
+            for (int location : locations) {
+                flags = location < flags.length ? flags : Arrays.copyOf(flags, location + 1);
+                flags[location] = 1 << i;
+                count = Math.max(count, location + 1);
+            }
+        }
+        return Arrays.copyOf(flags, count);
+    }
+
+    public TypedQuery<MemberTeamDto> createQuery(EntityManager em, MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        TypedQuery<MemberTeamDto> query = em.createQuery(templates[shape], MemberTeamDto.class);
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        return query;
+    }
+
+    /**
+     * search() 와 같은 SQL 을 JDBC 로 실행해서 ResultSet 을 바로 열 배열에 채운다. (DTO/Object[] row 를 만들지 않는다)
+     * 영속성 컨텍스트를 거치지 않으므로 flush 되지 않은 변경은 호출하는 쪽에서 먼저 flush 해야 보인다.
+     */
+    public MemberTeamColumns fetchColumns(Connection connection, MemberSearchCondition condition, int fetchSize)
+            throws SQLException {
+        int shape = shapeOf(condition);
+        try (PreparedStatement statement = connection.prepareStatement(sql[shape])) {
+            int[] parameters = sqlParameters[shape];
+            for (int i = 0; i < parameters.length; i++) {
+                bind(statement, i + 1, parameters[i], condition);
+            }
+            statement.setFetchSize(fetchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                MemberTeamColumns.Builder columns = MemberTeamColumns.builder(fetchSize);
+                while (rs.next()) {
+                    long memberId = rs.getLong(1);
+                    String username = rs.getString(2);
+                    int age = rs.getInt(3);
+                    long teamId = rs.getLong(4);
+                    if (rs.wasNull()) {
+                        columns.add(memberId, username, age);
+                    } else {
+                        columns.add(memberId, username, age, teamId, rs.getString(5));
+                    }
+                }
+                return columns.build();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int index, int parameter, MemberSearchCondition condition)
+            throws SQLException {
+        switch (parameter) {
+            case USERNAME:
+                statement.setString(index, condition.getUsername());
+                break;
+            case TEAM_NAME:
+                statement.setString(index, condition.getTeamName());
+                break;
+            case AGE_GOE:
+                statement.setInt(index, condition.getAgeGoe());
+                break;
+            case AGE_LOE:
+                statement.setInt(index, condition.getAgeLoe());
+                break;
+            default:
+                throw new IllegalStateException("Unbound parameter " + index);
+        }
+    }
+
+    public String jpql(MemberSearchCondition condition) {
+        return templates[shapeOf(condition)];
+    }
+
+    /**
+     * 템플릿은 username 일치(EXACT) 조건만 만든다. PREFIX/CONTAINS 는 MemberRepositoryImpl 의 동적 쿼리로 조회한다.
+     */
+    public static boolean supports(MemberSearchCondition condition) {
+        return isEmpty(condition.getUsername()) || condition.getUsernameMatch() == UsernameMatch.EXACT;
+    }
+
+    // MemberRepositoryImpl 의 usernameMatches/teamNameEq/ageGoe/ageLoe 와 같은 기준으로 조건을 무시한다
+    static int shapeOf(MemberSearchCondition condition) {
+        if (!supports(condition)) {
+            throw new IllegalArgumentException("Unsupported username match " + condition.getUsernameMatch());
+        }
+        int shape = 0;
+        if (!isEmpty(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (!isEmpty(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static String jpql(int shape) {
+        StringBuilder jpql = new StringBuilder()
+                .append("select new study.querydsl.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)")
+                .append(from(shape));
+
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        if ((shape & USERNAME) != 0) {
+            where.add("m.username = :username");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            where.add("t.name = :teamName");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            where.add("m.age >= :ageGoe");
+        }
+        if ((shape & AGE_LOE) != 0) {
+            where.add("m.age <= :ageLoe");
+        }
+        return jpql.append(where).toString();
+    }
+
+    private static String from(int shape) {
+        if ((shape & TEAM_NAME) == 0) {
+            return " from Member m left join m.team t";
+        }
+        return " from Member m join m.team t";
+    }
+}
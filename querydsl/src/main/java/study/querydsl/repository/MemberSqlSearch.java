@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.StatementOptions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.repository.MemberSearchQueryTemplates.*;
+
+/**
+ * search() 의 Querydsl SQL 구현 - member.search.engine=sql 이면 MemberRepositoryImpl 이 JPQL 템플릿 대신 사용한다.
+ * ---------------------------------------------------------------------------------------------
+ * 결과가 평평한 DTO 뿐이므로 JPQL -> SQL 변환과 Hibernate 결과 처리 없이 SQL 메타 모델로 바로 조회한다.
+ * 조건 해석(shapeOf)과 shape 별 조인 방식은 MemberSearchQueryTemplates 와 같다.
+ * JDBC 로 직접 실행하므로 auto flush 가 없다 - flush 되지 않은 변경은 호출하는 쪽에서 먼저 flush 해야 한다.
+ */
+@Component
+@ConditionalOnProperty(name = "member.search.engine", havingValue = "sql")
+public class MemberSqlSearch {
+
+    private static final SMember m = new SMember("m");
+    private static final STeam t = new STeam("t");
+
+    private static final Param<String> username = new Param<>(String.class, "username");
+    private static final Param<String> teamName = new Param<>(String.class, "teamName");
+    private static final Param<Integer> ageGoe = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> ageLoe = new Param<>(Integer.class, "ageLoe");
+
+    private final SQLQueryFactory queryFactory;
+    // shape 별 쿼리 메타데이터 - 조회할 때는 복사해서 파라미터 값만 넣는다
+    private final QueryMetadata[] queries = new QueryMetadata[SHAPES];
+
+    public MemberSqlSearch(SQLQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+        for (int shape = 0; shape < SHAPES; shape++) {
+            queries[shape] = query(shape).getMetadata();
+        }
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return search(condition, 0);
+    }
+
+    /**
+     * @param timeoutSeconds JDBC Statement 타임아웃 (0 이면 없음 - searchAsync 의 남은 시간)
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition, int timeoutSeconds) {
+        int shape = shapeOf(condition);
+        SQLQuery<?> query = new SQLQuery<>(queryFactory::getConnection, queryFactory.getConfiguration(),
+                queries[shape].clone());
+        if (timeoutSeconds > 0) {
+            query.setStatementOptions(StatementOptions.builder().setQueryTimeout(timeoutSeconds).build());
+        }
+        if ((shape & USERNAME) != 0) {
+            query.set(username, condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.set(teamName, condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.set(ageGoe, condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.set(ageLoe, condition.getAgeLoe());
+        }
+        return fetch(query);
+    }
+
+    // fetch() 는 row 마다 컬럼별 타입 매핑을 찾으므로 select 순서대로 직접 읽는다
+    private List<MemberTeamDto> fetch(SQLQuery<?> query) {
+        try (ResultSet rs = query.getResults()) {
+            List<MemberTeamDto> result = new ArrayList<>();
+            while (rs.next()) {
+                long teamId = rs.getLong(4);
+                boolean noTeam = rs.wasNull();
+                result.add(new MemberTeamDto(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                        noTeam ? null : teamId, rs.getString(5)));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw queryFactory.getConfiguration().translate(e);
+        }
+    }
+
+    private SQLQuery<?> query(int shape) {
+        SQLQuery<?> query = new SQLQuery<Void>(queryFactory.getConfiguration())
+                .select(m.memberId, m.username, m.age, t.id, t.name);
+        if ((shape & TEAM_NAME) == 0) {
+            query.from(m).leftJoin(t).on(m.teamId.eq(t.id));
+        } else {
+            query.from(m).join(t).on(m.teamId.eq(t.id));
+        }
+        return query.where(
+                (shape & USERNAME) != 0 ? m.username.eq(username) : null,
+                (shape & TEAM_NAME) != 0 ? t.name.eq(teamName) : null,
+                (shape & AGE_GOE) != 0 ? m.age.goe(ageGoe) : null,
+                (shape & AGE_LOE) != 0 ? m.age.loe(ageLoe) : null);
+    }
+}
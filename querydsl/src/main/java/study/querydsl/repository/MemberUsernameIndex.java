@@ -0,0 +1,211 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * username 3-gram 인덱스 (UsernameMatch.CONTAINS)
+ * -----------------------------------------------
+ * like '%x%' 는 인덱스를 쓰지 못하고 member 전체를 읽으므로, 검색어의 3-gram 을 모두 가진 회원 id 를 메모리에서 찾아
+ * member_id in (...) 으로 좁힌다. 결과는 항상 DB 의 like 조건으로 다시 확인하므로 인덱스는 후보의 상위 집합이기만 하면 된다.
+ * - 추가는 flush 시점(MemberUsernameIndexListener)에 바로, 제거는 커밋 후에 한다. (롤백되면 남은 항목은 후보만 늘린다)
+ * - 벌크 JPQL/SQL 은 엔티티 이벤트가 없다 - 벌크 삭제는 후보만 남기고, username 을 바꾸거나 SQL 로 넣었다면 rebuild() 해야 한다.
+ * - 이 JVM 의 엔티티 변경만 반영한다. 같은 DB 를 여러 인스턴스가 쓰면 다른 인스턴스가 넣은 회원을 놓치므로
+ *   단일 인스턴스에서만 켠다. (member.username-index.enabled, 기본 false - 꺼져 있으면 CONTAINS 는 항상 like 스캔)
+ *   이 JVM 밖에서 넣은 회원도 찾는다는 보장은 이것(단일 인스턴스, SQL 로 넣은 뒤 rebuild())뿐이다.
+ * - 처음 rebuild() 가 끝나기 전이나 검색어의 3-gram 이 하나라도 없으면 "모른다"(null)로 보고 like 스캔한다.
+ *   색인에 없는 3-gram 만 알아챌 뿐이다 - 밖에서 넣은 회원의 3-gram 이 모두 이미 색인에 있으면 그 회원 id 는 후보에 없고
+ *   결과에서 빠진다.
+ *   rebuild() 는 새 색인을 다 만든 뒤 한 번에 바꿔 끼우므로 그 동안의 검색은 이전 색인을 쓴다.
+ */
+@Slf4j
+@Component
+public class MemberUsernameIndex {
+
+    static final int GRAM = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxCandidates;
+
+    // 검색에 쓰는 색인 (rebuild 전에는 null), rebuild 중에는 새로 만드는 색인에도 같은 변경을 반영한다
+    private volatile Postings current;
+    private volatile Postings building;
+
+    public MemberUsernameIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${member.username-index.enabled:false}") boolean enabled,
+                               @Value("${member.username-index.max-candidates:1000}") int maxCandidates) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * member 테이블에서 새로 만들어 바꿔 끼운다. (시작할 때, SQL 로 데이터를 넣은 뒤)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Postings postings = new Postings();
+        building = postings;
+        try {
+            // 읽는 동안 리스너가 반영한 변경과 겹쳐도 추가만 하므로 상위 집합은 유지된다
+            jdbcTemplate.query("select member_id, username from member where username is not null",
+                    (RowCallbackHandler) rs -> postings.add(rs.getLong(1), rs.getString(2)));
+            current = postings;
+        } finally {
+            building = null;
+        }
+        log.info("member username index rebuilt: {} members, {} grams", postings.usernames.size(), postings.ids.size());
+    }
+
+    /**
+     * username 을 포함할 수 있는 회원 id (이 JVM 이 색인한 회원 중의 상위 집합)
+     * @return 모르면 null - like 스캔한다.
+     *         (꺼져 있거나 아직 만들지 않았을 때, 검색어가 GRAM 보다 짧거나 색인에 없는 3-gram 이 있을 때, 후보가 max-candidates 보다 많을 때)
+     */
+    public Set<Long> candidates(String needle) {
+        Postings postings = current;
+        if (postings == null || needle.length() < GRAM) {
+            return null;
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> ids = postings.ids.get(gram);
+            if (ids == null) {
+                return null;
+            }
+            lists.add(ids);
+        }
+        // 가장 작은 목록부터 교집합
+        lists.sort(Comparator.comparingInt(Set::size));
+        if (lists.get(0).size() > maxCandidates) {
+            return null;
+        }
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    void put(Long id, String username) {
+        forEachPostings(postings -> postings.put(id, username));
+    }
+
+    void remove(Long id) {
+        forEachPostings(postings -> postings.remove(id));
+    }
+
+    private void forEachPostings(Consumer<Postings> change) {
+        Postings current = this.current;
+        Postings building = this.building;
+        if (current != null) {
+            change.accept(current);
+        }
+        if (building != null && building != current) {
+            change.accept(building);
+        }
+    }
+
+    public int size() {
+        Postings postings = current;
+        return postings == null ? 0 : postings.usernames.size();
+    }
+
+    private static class Postings {
+        // id -> 마지막으로 색인한 username (변경/삭제 때 뺄 3-gram 계산용)
+        final Map<Long, String> usernames = new ConcurrentHashMap<>();
+        final Map<String, Set<Long>> ids = new ConcurrentHashMap<>();
+
+        // rebuild 용 - 이미 있는 항목은 건드리지 않는다
+        void add(Long id, String username) {
+            usernames.putIfAbsent(id, username);
+            addGrams(id, username);
+        }
+
+        void put(Long id, String username) {
+            String old = username == null ? usernames.remove(id) : usernames.put(id, username);
+            if (Objects.equals(old, username)) {
+                return;
+            }
+            addGrams(id, username);
+            if (old != null) {
+                afterCommit(() -> {
+                    Set<String> current = grams(usernames.get(id));
+                    for (String gram : grams(old)) {
+                        if (!current.contains(gram)) {
+                            removeId(gram, id);
+                        }
+                    }
+                });
+            }
+        }
+
+        void remove(Long id) {
+            afterCommit(() -> {
+                for (String gram : grams(usernames.remove(id))) {
+                    removeId(gram, id);
+                }
+            });
+        }
+
+        private void addGrams(Long id, String username) {
+            for (String gram : grams(username)) {
+                ids.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        private void removeId(String gram, Long id) {
+            ids.computeIfPresent(gram, (g, set) -> {
+                set.remove(id);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    static Set<String> grams(String value) {
+        if (value == null || value.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        String[] grams = new String[value.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = value.substring(i, i + GRAM);
+        }
+        return new HashSet<>(Arrays.asList(grams));
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.repository;
+
+import study.querydsl.entity.Member;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member 엔티티 리스너 - insert/update/delete 를 MemberUsernameIndex 에 반영한다.
+ * 스프링 빈 컨테이너(SpringBeanContainer)가 생성하므로 생성자 주입을 쓸 수 있다.
+ */
+public class MemberUsernameIndexListener {
+
+    private final MemberUsernameIndex index;
+
+    public MemberUsernameIndexListener(MemberUsernameIndex index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void indexed(Member member) {
+        index.put(member.getId(), member.getUsername());
+    }
+
+    @PostRemove
+    public void removed(Member member) {
+        index.remove(member.getId());
+    }
+}
@@ -0,0 +1,209 @@
+package study.querydsl.repository;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TeamSummary 증분 갱신 (member.team-summary.enabled=true 일 때만)
+ * ------------------------------------------------------------
+ * Member insert/update/delete 이벤트에서 팀별 (회원 수, 나이 합) 변화량을 세션 단위로 모으고,
+ * flush 가 끝난 뒤 커밋 직전에 같은 커넥션으로 team_summary 에 한 번에 반영한다. (롤백되면 버린다)
+ * 벌크 JPQL/SQL 은 이벤트가 없으므로 실행한 뒤 rebuild() 로 다시 계산해야 한다.
+ */
+@Component
+@ConditionalOnProperty(name = "member.team-summary.enabled", havingValue = "true")
+public class TeamSummaryMaintainer implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String UPDATE = "update team_summary set member_count = member_count + ?, age_sum = age_sum + ? where team_id = ?";
+    private static final String INSERT = "insert into team_summary (team_id, member_count, age_sum) values (?, ?, ?)";
+    private static final String DELETE = "delete from team_summary where team_id = ?";
+    private static final String DELETE_ALL = "delete from team_summary";
+    private static final String DUPLICATE_KEY = "23505"; // SQLSTATE unique violation
+    private static final String INSERT_ALL = "insert into team_summary (team_id, member_count, age_sum) " +
+            "select t.id, count(m.member_id), coalesce(sum(m.age), 0) " +
+            "from team t left join member m on m.team_id = t.id group by t.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<EventSource, Deltas> pending = new ConcurrentHashMap<>();
+
+    public TeamSummaryMaintainer(EntityManagerFactory emf, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    /**
+     * member 테이블에서 전부 다시 계산한다. (기능을 처음 켤 때, 벌크 연산 후)
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update(DELETE_ALL);
+        jdbcTemplate.update(INSERT_ALL);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            deltas(event.getSession()).add(event.getPersister(), event.getState(), 1);
+        } else if (event.getEntity() instanceof Team) {
+            deltas(event.getSession()).created.add((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        Deltas deltas = deltas(event.getSession());
+        if (event.getOldState() == null) {
+            // 변경 전 상태를 모르면 (detached 엔티티 update 등) 전부 다시 계산
+            deltas.rebuild = true;
+            return;
+        }
+        deltas.add(event.getPersister(), event.getOldState(), -1);
+        deltas.add(event.getPersister(), event.getState(), 1);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            deltas(event.getSession()).add(event.getPersister(), event.getDeletedState(), -1);
+        } else if (event.getEntity() instanceof Team) {
+            deltas(event.getSession()).deleted.add((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private Deltas deltas(EventSource session) {
+        Deltas deltas = pending.get(session);
+        if (deltas == null) {
+            Deltas created = new Deltas();
+            pending.put(session, created);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> {
+                pending.remove(session);
+                s.doWork(created::apply);
+            });
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) ->
+                    pending.remove(session));
+            deltas = created;
+        }
+        return deltas;
+    }
+
+    private class Deltas {
+        private final Set<Long> created = new HashSet<>();
+        private final Set<Long> deleted = new HashSet<>();
+        // teamId -> {회원 수, 나이 합}
+        private final Map<Long, long[]> changes = new HashMap<>();
+        private boolean rebuild;
+
+        void add(EntityPersister persister, Object[] state, int sign) {
+            Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+            if (team == null) {
+                return;
+            }
+            int age = (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+            long[] change = changes.computeIfAbsent(team.getId(), id -> new long[2]);
+            change[0] += sign;
+            change[1] += (long) sign * age;
+        }
+
+        void apply(Connection connection) throws SQLException {
+            if (rebuild) {
+                try (PreparedStatement delete = connection.prepareStatement(DELETE_ALL);
+                     PreparedStatement insert = connection.prepareStatement(INSERT_ALL)) {
+                    delete.executeUpdate();
+                    insert.executeUpdate();
+                }
+                return;
+            }
+            for (Long teamId : created) {
+                changes.putIfAbsent(teamId, new long[2]);
+            }
+            try (PreparedStatement update = connection.prepareStatement(UPDATE);
+                 PreparedStatement insert = connection.prepareStatement(INSERT);
+                 PreparedStatement delete = connection.prepareStatement(DELETE)) {
+                for (Entry<Long, long[]> change : changes.entrySet()) {
+                    long[] delta = change.getValue();
+                    boolean unchanged = delta[0] == 0 && delta[1] == 0 && !created.contains(change.getKey());
+                    if (unchanged || deleted.contains(change.getKey())) {
+                        continue;
+                    }
+                    // 새 팀, 또는 요약 row 가 없는 팀(기능을 켜기 전에 만든 팀)은 insert
+                    if (created.contains(change.getKey()) || update(update, change.getKey(), delta) == 0) {
+                        insert(connection, insert, update, change.getKey(), delta);
+                    }
+                }
+                for (Long teamId : deleted) {
+                    delete.setLong(1, teamId);
+                    delete.executeUpdate();
+                }
+            }
+        }
+
+        // 요약 row 가 없는 팀에 두 트랜잭션이 동시에 회원을 저장하면 둘 다 update 0 건이고 나중에 insert 한 쪽이 키 중복
+        // - savepoint 로 insert 만 되돌리고 먼저 커밋된 row 에 update 로 반영한다
+        private void insert(Connection connection, PreparedStatement insert, PreparedStatement update,
+                            Long teamId, long[] delta) throws SQLException {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                insert.setLong(1, teamId);
+                insert.setLong(2, delta[0]);
+                insert.setLong(3, delta[1]);
+                insert.executeUpdate();
+            } catch (SQLException e) {
+                if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                update(update, teamId, delta);
+                return;
+            }
+            connection.releaseSavepoint(savepoint);
+        }
+
+        private int update(PreparedStatement update, Long teamId, long[] delta) throws SQLException {
+            update.setLong(1, delta[0]);
+            update.setLong(2, delta[1]);
+            update.setLong(3, teamId);
+            return update.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.TeamSummary;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 대시보드용 팀 통계 - 집계하지 않고 TeamSummary row 를 그대로 읽는다. (member.team-summary.enabled=true 필요)
+ */
+@Transactional(readOnly = true)
+public interface TeamSummaryRepository extends JpaRepository<TeamSummary, Long> {
+
+    @Query("select new study.querydsl.dto.TeamStatsDto(t.id, t.name, s.memberCount, s.ageSum)" +
+            " from TeamSummary s join Team t on t.id = s.teamId order by t.name")
+    List<TeamStatsDto> findAllStats();
+
+    @Query("select new study.querydsl.dto.TeamStatsDto(t.id, t.name, s.memberCount, s.ageSum)" +
+            " from TeamSummary s join Team t on t.id = s.teamId where t.name = :teamName")
+    Optional<TeamStatsDto> findStatsByTeamName(String teamName);
+}
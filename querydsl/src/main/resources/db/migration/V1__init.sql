@@ -0,0 +1,36 @@
+-- 엔티티 매핑(Member, Team, TeamSummary, Hello)과 같은 초기 스키마
+create sequence hibernate_sequence start with 1 increment by 1;
+create sequence member_seq start with 1 increment by 50;
+create sequence team_seq start with 1 increment by 50;
+
+create table hello (
+    id bigint not null,
+    primary key (id)
+);
+
+create table team (
+    id bigint not null,
+    name varchar(255),
+    primary key (id)
+);
+
+create table member (
+    member_id bigint not null,
+    age integer not null,
+    username varchar(255),
+    team_id bigint,
+    primary key (member_id),
+    constraint fk_member_team foreign key (team_id) references team (id)
+);
+
+create table team_summary (
+    team_id bigint not null,
+    age_sum bigint not null,
+    member_count bigint not null,
+    primary key (team_id)
+);
+
+create index idx_member_username on member (username);
+create index idx_member_team_age on member (team_id, age, username);
+create index idx_member_age on member (age);
+create index idx_team_name on team (name);
@@ -0,0 +1,3 @@
+-- Member, Team 변경 표시 (changeStamp) - searchParallelStream 이 export 중에 바뀐 회원/팀을 찾는 데 쓴다 (잠금 아님)
+alter table member add column change_stamp integer default 0 not null;
+alter table team add column change_stamp integer default 0 not null;
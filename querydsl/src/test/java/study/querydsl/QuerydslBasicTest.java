@@ -396,7 +396,7 @@ public class QuerydslBasicTest {
     @Test
     public void NofetchJoin(){
         em.flush();
-        em.flush();
+        em.clear();
 
         // Member 엔티티에서 Team 엔티티와의 조인 매칭을 LAZY으로 해서
         // DB에서 조회할때 Member만 조회됨.
@@ -419,7 +419,7 @@ public class QuerydslBasicTest {
     @Test
     public void fetchJoin(){
         em.flush();
-        em.flush();
+        em.clear();
 
         // 패치 조인을 사용하여
         // member1 를 조회할때 연관된 team을 한 쿼리로 다 끌고옴
@@ -430,7 +430,7 @@ public class QuerydslBasicTest {
                 .fetchOne();
 
         boolean loaded = emf.getPersistenceUnitUtil().isLoaded(findMemeber.getTeam());
-        assertThat(loaded).as("패치 조인 미적용").isFalse();
+        assertThat(loaded).as("패치 조인 적용").isTrue();
 
     }
 
@@ -0,0 +1,158 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 커넥션 풀 설정과 hikaricp.* 메트릭 - p6spy 로 감싼 DataSource 에서도 Hikari 풀에 설정/메트릭이 붙어야 한다.
+ */
+@SpringBootTest
+class DataSourcePoolTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    @Qualifier("memberQueryExecutor")
+    ExecutorService queryExecutor;
+
+    @Autowired
+    @Qualifier("memberExportExecutor")
+    ExecutorService exportExecutor;
+
+    @Test
+    public void poolSettings() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+
+        assertThat(hikari.getMaximumPoolSize()).isEqualTo(16);
+        assertThat(hikari.getMinimumIdle()).isEqualTo(16);
+        assertThat(hikari.getConnectionTimeout()).isEqualTo(3000);
+        assertThat(hikari.getLeakDetectionThreshold()).isZero(); // diagnostic 프로파일에서만 켠다
+        // URL 의 H2 설정
+        assertThat(jdbcTemplate.queryForObject(
+                "select setting_value from information_schema.settings where setting_name = 'QUERY_CACHE_SIZE'",
+                String.class)).isEqualTo("32");
+    }
+
+    @Test
+    public void poolMetrics() {
+        Timer acquire = registry.get("hikaricp.connections.acquire").timer();
+        long acquired = acquire.count();
+
+        jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+
+        assertThat(acquire.count()).isGreaterThan(acquired);
+        assertThat(registry.get("hikaricp.connections.active").gauge().value()).isZero();
+        assertThat(registry.get("hikaricp.connections.pending").gauge().value()).isZero();
+    }
+
+    // 풀이 모두 사용 중이면 connection-timeout 뒤에 실패하고 timeout 카운터가 오른다
+    @Test
+    public void acquireTimeout() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        double timeouts = registry.get("hikaricp.connections.timeout").counter().count();
+        hikari.setConnectionTimeout(250);
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < hikari.getMaximumPoolSize(); i++) {
+                held.add(hikari.getConnection());
+            }
+            assertThat(registry.get("hikaricp.connections.active").gauge().value()).isEqualTo(hikari.getMaximumPoolSize());
+
+            assertThatThrownBy(hikari::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+            assertThat(registry.get("hikaricp.connections.timeout").counter().count()).isEqualTo(timeouts + 1);
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+            hikari.setConnectionTimeout(3000);
+        }
+    }
+
+    // 병렬 export 파티션(member.export.parallelism)과 팬아웃 조회 스레드(member.async.pool-size)가 모두 커넥션을 잡고 있어도
+    // 풀이 모자라지 않아야 한다 - 요청 스레드의 조회까지 connection-timeout 안에 커넥션을 얻는다
+    @Test
+    public void asyncAndExportTogether() throws Exception {
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        int queryThreads = ((ThreadPoolExecutor) queryExecutor).getMaximumPoolSize();
+        int exportThreads = ((ThreadPoolExecutor) exportExecutor).getMaximumPoolSize();
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x, concat('pool', x), 10 from system_range(1000000001, 1000000200)");
+        hikari.setConnectionTimeout(250);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> queries = new ArrayList<>();
+        try (Stream<MemberTeamDto> export = memberRepository.searchParallelStream(new MemberSearchCondition(), exportThreads, 4, true)) {
+            // 소비하지 않으면 파티션은 버퍼가 찬 채로 커넥션을 잡고 기다린다
+            Iterator<MemberTeamDto> rows = export.iterator();
+            assertThat(rows.hasNext()).isTrue();
+            awaitActive(hikari, exportThreads);
+
+            CountDownLatch acquired = new CountDownLatch(queryThreads);
+            for (int i = 0; i < queryThreads; i++) {
+                queries.add(queryExecutor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        acquired.countDown();
+                        release.await();
+                    }
+                    return null;
+                }));
+            }
+            assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hikari.getHikariPoolMXBean().getActiveConnections()).isEqualTo(queryThreads + exportThreads);
+
+            assertThat(jdbcTemplate.queryForObject("select count(*) from member where username like 'pool%'", Long.class))
+                    .isEqualTo(200);
+        } finally {
+            release.countDown();
+            for (Future<?> query : queries) {
+                query.get(5, TimeUnit.SECONDS);
+            }
+            hikari.setConnectionTimeout(3000);
+            // close 된 파티션이 끝나야 커넥션이 돌아온다
+            exportExecutor.submit(() -> null).get(5, TimeUnit.SECONDS);
+            jdbcTemplate.update("delete from member where member_id > 1000000000");
+        }
+    }
+
+    // hikaricp.connections.active 게이지는 값을 잠시 캐시하므로 풀에서 바로 읽는다
+    private static void awaitActive(HikariDataSource hikari, int connections) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hikari.getHikariPoolMXBean().getActiveConnections() < connections) {
+            assertThat(System.nanoTime()).as("%d active connections", connections).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package study.querydsl.config;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 읽기 복제본 라우팅 - 두 번째 H2(인메모리)를 복제본으로 두고 복제본에만 있는 데이터로 라우팅을 확인한다.
+ * 복제본은 테스트가 직접 넣을 때까지 따라오지 않는다. (복제 지연)
+ */
+@SpringBootTest(properties = "member.datasource.read.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1")
+class ReadWriteDataSourceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    @Qualifier("writeDataSource")
+    DataSource writeDataSource;
+
+    @Autowired
+    @Qualifier("readDataSource")
+    DataSource readDataSource;
+
+    JdbcTemplate primary;
+    JdbcTemplate replica;
+
+    @BeforeEach
+    public void before() {
+        primary = new JdbcTemplate(writeDataSource);
+        replica = new JdbcTemplate(readDataSource);
+        replica.execute("create table if not exists team (id bigint primary key, name varchar(255))");
+        replica.execute("create table if not exists member (member_id bigint primary key, username varchar(255), " +
+                "age integer not null, team_id bigint)");
+        replica.update("delete from member");
+        replica.update("delete from team");
+        replica.update("insert into team (id, name) values (1, 'replicaTeam')");
+        replica.update("insert into member (member_id, username, age, team_id) values (1, 'replica1', 10, 1)");
+    }
+
+    @AfterEach
+    public void after() {
+        primary.update("delete from member where username = 'written'");
+    }
+
+    @Test
+    public void readsGoToReplica() {
+        assertThat(memberJpaRepository.findAll())
+                .extracting(Member::getUsername)
+                .containsExactly("replica1");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("replicaTeam");
+        assertThat(memberRepository.search(condition))
+                .extracting(MemberTeamDto::getUsername)
+                .containsExactly("replica1");
+        assertThat(memberRepository.findByUsername("replica1")).hasSize(1);
+    }
+
+    @Test
+    public void writesGoToPrimary() {
+        memberJpaRepository.save(new Member("written", 20));
+
+        assertThat(primary.queryForObject("select count(*) from member where username = 'written'", Long.class))
+                .isEqualTo(1);
+        assertThat(memberJpaRepository.findByUsername("written")).isEmpty(); // 복제되지 않은 복제본
+    }
+
+    // 검색 캐시가 켜져 있어도(기본값) 복제본을 쓰면 캐시하지 않는다 - 복제본이 따라오면 바로 보인다
+    @Test
+    public void searchAfterWriteWithLaggingReplica() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("written");
+
+        memberJpaRepository.save(new Member("written", 20));
+        assertThat(memberRepository.search(condition)).isEmpty(); // 아직 복제되지 않았다
+
+        // 복제본이 따라온다
+        Long id = primary.queryForObject("select member_id from member where username = 'written'", Long.class);
+        replica.update("insert into member (member_id, username, age) values (?, 'written', 20)", id);
+
+        assertThat(memberRepository.search(condition))
+                .extracting(MemberTeamDto::getUsername)
+                .containsExactly("written");
+    }
+
+    @Test
+    public void readOnlyPersistenceContext() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            Session session = em.unwrap(Session.class);
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+
+            Member member = memberJpaRepository.findByUsername("replica1").get(0);
+            assertThat(session.isReadOnly(member)).isTrue(); // 스냅샷 없음, 더티 체킹 대상 아님
+            member.setAge(99);
+        });
+
+        assertThat(replica.queryForObject("select age from member where username = 'replica1'", Integer.class))
+                .isEqualTo(10);
+    }
+}
@@ -0,0 +1,251 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 스트리밍 응답은 요청 스레드가 아닌 곳에서 새 트랜잭션으로 조회하므로 데이터를 커밋해 두고 테스트한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void searchMembersNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members")
+                        .param("teamName", "teamA")
+                        .param("ageGoe", "15"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).contains("\"username\":\"member2\"", "\"teamName\":\"teamA\"")
+                .endsWith("{\"complete\":true,\"count\":1}\n");
+    }
+
+    @Test
+    public void searchMembersAll() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(4);
+        assertThat(body).endsWith("{\"complete\":true,\"count\":3}\n");
+    }
+
+    // usernameMatch 를 비워 보내면 EXACT 로 검색한다
+    @Test
+    public void searchMembersEmptyUsernameMatch() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members")
+                        .param("username", "member1")
+                        .param("usernameMatch", ""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).contains("\"username\":\"member1\"");
+    }
+
+    /**
+     * partitions 가 2 이상이면 searchParallelStream, 아니면 한 트랜잭션의 searchStream 으로 조회한다.
+     */
+    @Test
+    public void searchMembersPartitions() throws Exception {
+        MemberTeamDto row = new MemberTeamDto(1L, "member1", 10, 1L, "teamA");
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberRepository memberRepository = mock(MemberRepository.class);
+        given(memberRepository.searchStream(any(), anyInt())).willAnswer(invocation -> Stream.of(row));
+        given(memberRepository.searchParallelStream(any(), anyInt(), anyInt(), anyBoolean())).willAnswer(invocation -> Stream.of(row));
+
+        MemberController controller = controller(memberRepository);
+        assertThat(writeBody(controller.searchMembers(condition, 1))).contains("\"username\":\"member1\"");
+        then(memberRepository).should().searchStream(condition, 100);
+        then(memberRepository).should(never()).searchParallelStream(any(), anyInt(), anyInt(), anyBoolean());
+
+        assertThat(writeBody(controller.searchMembers(condition, 4))).contains("\"username\":\"member1\"");
+        then(memberRepository).should().searchParallelStream(condition, 4, 100, false);
+    }
+
+    // partitions 조회 중에 회원이 바뀌면 이미 보낸 row 뒤에 complete=false 끝 표시
+    @Test
+    public void searchMembersPartitionsInconsistent() throws Exception {
+        MemberTeamDto row = new MemberTeamDto(1L, "member1", 10, 1L, "teamA");
+        MemberRepository memberRepository = mock(MemberRepository.class);
+        given(memberRepository.searchParallelStream(any(), anyInt(), anyInt(), anyBoolean())).willAnswer(invocation ->
+                Stream.of(row, null).map(r -> {
+                    if (r == null) {
+                        throw new OptimisticLockingFailureException("members changed");
+                    }
+                    return r;
+                }));
+
+        String body = writeBody(controller(memberRepository).searchMembers(new MemberSearchCondition(), 2));
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).endsWith("{\"complete\":false,\"count\":1,\"error\":\"members changed\"}\n");
+    }
+
+    // partitions 는 1 ~ member.export.parallelism(기본 4)
+    @Test
+    public void searchMembersPartitionsOutOfRange() throws Exception {
+        for (String partitions : List.of("0", "-1", "5")) {
+            mockMvc.perform(get("/v1/members").param("partitions", partitions))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    /**
+     * 한 팀의 검색이 타임아웃되면 그 예외로 끝나고 아직 실행 중인 다른 팀 검색은 취소된다.
+     */
+    @Test
+    public void searchByTeams_cancelsSiblingsOnFailure() {
+        MemberRepository memberRepository = mock(MemberRepository.class);
+        CompletableFuture<List<MemberTeamDto>> timedOut = new CompletableFuture<>();
+        CompletableFuture<List<MemberTeamDto>> running = new CompletableFuture<>();
+        given(memberRepository.searchAsync(any(), any())).willReturn(timedOut, running);
+        MemberController controller = controller(memberRepository);
+
+        CompletableFuture<Map<String, List<MemberTeamDto>>> response =
+                controller.searchByTeams(new MemberSearchCondition(), List.of("teamA", "teamB"));
+        timedOut.completeExceptionally(new TimeoutException());
+
+        assertThat(running).isCancelled();
+        assertThatThrownBy(response::join).hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    // 같은 팀은 한 번만 검색하고, 중복을 뺀 팀 수가 조회 Executor 대기열(여기서는 2)보다 많으면 400
+    @Test
+    public void searchByTeams_distinctAndLimited() {
+        MemberRepository memberRepository = mock(MemberRepository.class);
+        given(memberRepository.searchAsync(any(), any())).willReturn(CompletableFuture.completedFuture(List.of()));
+        MemberController controller = controller(memberRepository);
+
+        assertThat(controller.searchByTeams(new MemberSearchCondition(), List.of("teamA", "teamB", "teamA")).join())
+                .containsOnlyKeys("teamA", "teamB");
+        then(memberRepository).should(times(2)).searchAsync(any(), any());
+
+        assertThatThrownBy(() -> controller.searchByTeams(new MemberSearchCondition(), List.of("teamA", "teamB", "teamC")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    // 조회 Executor 대기열이 가득 차서 제출하지 못하면 503, 기본 대기열(100)보다 많은 팀은 400
+    @Test
+    public void searchByTeams_rejectedAndTooMany() throws Exception {
+        MemberRepository memberRepository = mock(MemberRepository.class);
+        given(memberRepository.searchAsync(any(), any()))
+                .willReturn(CompletableFuture.failedFuture(new RejectedExecutionException()));
+        MockMvc rejecting = MockMvcBuilders.standaloneSetup(controller(memberRepository)).build();
+
+        MvcResult result = rejecting.perform(get("/v1/members/by-team").param("teamNames", "teamA"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        rejecting.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        String[] tooMany = IntStream.rangeClosed(1, 101).mapToObj(i -> "team" + i).toArray(String[]::new);
+        mockMvc.perform(get("/v1/members/by-team").param("teamNames", tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static MemberController controller(MemberRepository memberRepository) {
+        return new MemberController(memberRepository, Duration.ofSeconds(1), 100, 4, 2,
+                mock(PlatformTransactionManager.class), new ObjectMapper());
+    }
+
+    private static String writeBody(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+package study.querydsl.entity;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * Team / Team.members 2차 캐시 - 트랜잭션(영속성 컨텍스트)마다 새로 읽어야 캐시를 타므로 테스트 전체를 묶지 않는다.
+ * 벌크 update 는 해당 테이블의 region 을 비우므로 그 뒤에는 DB 값을 읽어야 한다.
+ */
+@SpringBootTest
+class TeamSecondLevelCacheTest {
+
+    private static final String TEAM_REGION = "team";
+    private static final String MEMBERS_REGION = "team-members";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    Statistics statistics;
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        emf.getCache().evictAll();
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void teamAndMembersFromCache() {
+        // 팀은 insert 할 때, 회원 id 목록은 첫 조회에서 캐시에 올라간다
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamAId).getMembers()).hasSize(2));
+        long teamHits = region(TEAM_REGION).getHitCount();
+        long membersHits = region(MEMBERS_REGION).getHitCount();
+        long collectionLoads = statistics.getCollectionLoadCount();
+
+        // 다음 영속성 컨텍스트에서는 팀과 회원 id 목록을 캐시에서 읽는다 (회원 엔티티는 id 로 조회)
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamAId).getMembers())
+                .extracting("username").containsExactlyInAnyOrder("member1", "member2"));
+
+        assertThat(region(TEAM_REGION).getHitCount() - teamHits).isEqualTo(1);
+        assertThat(region(MEMBERS_REGION).getHitCount() - membersHits).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(collectionLoads);
+    }
+
+    // QuerydslBasicTest.bulkUpdate 처럼 영속성 컨텍스트를 거치지 않는 update
+    @Test
+    public void bulkUpdateEvicts() {
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamAId).getMembers()).hasSize(2));
+
+        tx.executeWithoutResult(status -> {
+            JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.update(team).set(team.name, "renamed").where(team.id.eq(teamAId)).execute();
+            queryFactory.update(member).setNull(member.team).where(member.username.eq("member2")).execute();
+        });
+        long teamHits = region(TEAM_REGION).getHitCount();
+
+        tx.executeWithoutResult(status -> {
+            Team teamA = em.find(Team.class, teamAId);
+            assertThat(teamA.getName()).isEqualTo("renamed");
+            assertThat(teamA.getMembers()).extracting("username").containsExactly("member1");
+        });
+        assertThat(region(TEAM_REGION).getHitCount()).isEqualTo(teamHits);
+    }
+
+    @Test
+    public void changeTeamUpdatesBothCollections() {
+        tx.executeWithoutResult(status -> {
+            em.find(Team.class, teamAId).getMembers().size();
+            em.find(Team.class, teamBId).getMembers().size();
+        });
+
+        tx.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            Team teamA = em.find(Team.class, teamAId);
+            teamA.getMembers().size();
+            Team teamB = em.find(Team.class, teamBId);
+            member1.changeTeam(teamB);
+            assertThat(member1.getTeam().getMembers()).contains(member1);
+            assertThat(teamA.getMembers()).doesNotContain(member1);
+        });
+
+        tx.executeWithoutResult(status -> {
+            assertThat(em.find(Team.class, teamAId).getMembers()).extracting("username").containsExactly("member2");
+            assertThat(em.find(Team.class, teamBId).getMembers()).extracting("username")
+                    .containsExactlyInAnyOrder("member1", "member3");
+        });
+    }
+
+    /**
+     * 이전 팀 members 가 로딩되지 않았으면 changeTeam 이 로딩하지 않는다. 커밋 후 캐시된 두 컬렉션 모두 비워져서 다시 읽으면 맞다.
+     */
+    @Test
+    public void changeTeamDoesNotLoadOldTeamMembers() {
+        tx.executeWithoutResult(status -> {
+            em.find(Team.class, teamAId).getMembers().size();
+            em.find(Team.class, teamBId).getMembers().size();
+        });
+
+        tx.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            Team teamA = member1.getTeam();
+            member1.changeTeam(em.find(Team.class, teamBId));
+            assertThat(Hibernate.isInitialized(teamA.getMembers())).isFalse();
+        });
+
+        tx.executeWithoutResult(status -> {
+            assertThat(em.find(Team.class, teamAId).getMembers()).extracting("username").containsExactly("member2");
+            assertThat(em.find(Team.class, teamBId).getMembers()).extracting("username")
+                    .containsExactlyInAnyOrder("member1", "member3");
+        });
+    }
+
+    private CacheRegionStatistics region(String name) {
+        return statistics.getDomainDataRegionStatistics(name);
+    }
+}
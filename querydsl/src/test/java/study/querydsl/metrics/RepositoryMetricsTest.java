@@ -0,0 +1,143 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 리포지토리/SQL 메트릭 - 느린 쿼리 기준을 0ms 로 두면 모든 SQL 이 느린 쿼리로 기록된다.
+ */
+@SpringBootTest(properties = "member.metrics.slow-query-threshold=0ms")
+@AutoConfigureMockMvc
+@Transactional
+class RepositoryMetricsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void repositoryMetrics() {
+        long searchCount = invocations("MemberRepository", "search");
+        long findAllCount = invocations("MemberJpaRepository", "findAll");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberRepository.search(condition);
+        memberJpaRepository.findAll();
+        memberJpaRepository.findByUsername("member1");
+
+        assertThat(invocations("MemberRepository", "search")).isEqualTo(searchCount + 1);
+        assertThat(invocations("MemberJpaRepository", "findAll")).isEqualTo(findAllCount + 1);
+
+        DistributionSummary rows = registry.get("repository.rows")
+                .tags("repository", "MemberJpaRepository", "method", "findByUsername")
+                .summary();
+        assertThat(rows.max()).isEqualTo(1);
+
+        DistributionSummary statements = registry.get("repository.statements")
+                .tags("repository", "MemberRepository", "method", "search")
+                .summary();
+        assertThat(statements.max()).isEqualTo(1);
+    }
+
+    /**
+     * searchAsync 는 조회 Executor 스레드에서 실행되므로 future 가 완료될 때 그 스레드의 SQL 수까지 기록한다.
+     * (기록은 future 완료 콜백에서 하므로 join() 뒤에 잠깐 기다린다)
+     */
+    @Test
+    public void asyncStatements() throws InterruptedException {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("asyncMetrics"); // 캐시되지 않은 조건
+        long recorded = statements("searchAsync").count();
+
+        memberRepository.searchAsync(condition, Duration.ofSeconds(5)).join();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (statements("searchAsync").count() == recorded && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(statements("searchAsync").count()).isEqualTo(recorded + 1);
+        assertThat(statements("searchAsync").max()).isEqualTo(1);
+    }
+
+    @Test
+    public void slowQueryWithBoundValues() {
+        memberJpaRepository.findByUsername("member2");
+
+        assertThat(slowQueryLog.slowQueries())
+                .extracting(SlowQueryLog.SlowQuery::getSql)
+                .anyMatch(sql -> sql.contains("'member2'"));
+        assertThat(registry.get("jdbc.statements").tag("outcome", "success").timer().count()).isPositive();
+    }
+
+    @Test
+    public void actuatorEndpoints() throws Exception {
+        memberJpaRepository.findAll();
+
+        mockMvc.perform(get("/actuator/slowqueries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].sql").exists());
+        mockMvc.perform(get("/actuator/metrics/repository.invocations"))
+                .andExpect(status().isOk());
+    }
+
+    // 아직 기록되지 않았으면 빈 summary 를 등록해서 돌려준다 (같은 이름/태그면 기존 meter)
+    private DistributionSummary statements(String method) {
+        return DistributionSummary.builder("repository.statements")
+                .tags("repository", "MemberRepository", "method", method)
+                .register(registry);
+    }
+
+    private long invocations(String repository, String method) {
+        Timer timer = registry.find("repository.invocations")
+                .tags("repository", repository, "method", method)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,154 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Data;
+import lombok.Getter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.SerializationUtils;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * DtoProjections 결과가 Projections.bean/fields 결과와 같아야 한다.
+ */
+@SpringBootTest
+@Transactional
+class DtoProjectionsTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member(null, 30));
+    }
+
+    @Test
+    public void beanAndFields() {
+        List<MemberDto> bean = queryFactory
+                .select(DtoProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<MemberDto> fields = queryFactory
+                .select(DtoProjections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        List<MemberDto> expected = queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+
+        assertThat(bean).isEqualTo(expected);
+        assertThat(fields).isEqualTo(expected);
+        assertThat(bean).extracting("username").containsExactly("member1", "member2", null);
+    }
+
+    // 별칭, 서브쿼리 별칭, 상위 클래스/final 필드, 팀이 없으면 null 은 건너뛴다 (QuerydslBasicTest.findUserDto 주석 참고)
+    @Test
+    public void aliasAndSubQuery() {
+        QMember memberSub = new QMember("memberSub");
+
+        List<UserDto> result = queryFactory
+                .select(DtoProjections.fields(UserDto.class,
+                        member.username.as("name"),
+                        team.name.as("teamName"),
+                        ExpressionUtils.as(JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub), "age")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .orderBy(member.age.asc())
+                .fetch();
+
+        assertThat(result).extracting("name", "teamName", "age").containsExactly(
+                tuple("member1", "teamA", 30),
+                tuple("member2", "teamA", 30),
+                tuple(null, "none", 30));
+    }
+
+    // DTO 에 없는 프로퍼티는 Projections.bean 처럼 무시한다
+    @Test
+    public void unknownPropertyIgnored() {
+        List<MemberDto> result = queryFactory
+                .select(DtoProjections.bean(MemberDto.class, member.username, team.name))
+                .from(member)
+                .join(member.team, team)
+                .fetch();
+
+        assertThat(result).extracting("username", "age").containsOnly(tuple("member1", 0), tuple("member2", 0));
+    }
+
+    @Test
+    public void noDefaultConstructor() {
+        assertThatThrownBy(() -> DtoProjections.bean(NoDefaultConstructorDto.class, member.username))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void equalsForSameBinding() {
+        assertThat(DtoProjections.bean(MemberDto.class, member.username, member.age))
+                .isEqualTo(DtoProjections.bean(MemberDto.class, member.username, member.age))
+                .isNotEqualTo(DtoProjections.fields(MemberDto.class, member.username, member.age));
+        assertThat(DtoProjections.bean(MemberDto.class, member.username, member.age).hashCode())
+                .isEqualTo(DtoProjections.bean(MemberDto.class, member.username, member.age).hashCode());
+    }
+
+    // 역직렬화한 프로젝션도 접근자를 다시 찾아서 그대로 쓸 수 있어야 한다
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serializable() {
+        DtoProjection<MemberDto> projection = DtoProjections.fields(MemberDto.class, member.username, member.age);
+        DtoProjection<MemberDto> copy = (DtoProjection<MemberDto>) SerializationUtils.deserialize(SerializationUtils.serialize(projection));
+
+        assertThat(copy).isEqualTo(projection).hasSameHashCodeAs(projection);
+        List<MemberDto> result = queryFactory
+                .select(copy)
+                .from(member)
+                .orderBy(member.age.asc())
+                .fetch();
+        assertThat(result).extracting("username", "age").containsExactly(
+                tuple("member1", 10), tuple("member2", 20), tuple(null, 30));
+    }
+
+    static class NoDefaultConstructorDto {
+        NoDefaultConstructorDto(String username) {
+        }
+    }
+
+    @Getter
+    static class NamedDto {
+        private String name;
+    }
+
+    @Data
+    static class UserDto extends NamedDto {
+        private final Integer age = null;
+        private String teamName = "none";
+    }
+}
@@ -0,0 +1,109 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * N+1 회귀 테스트 - 호출당 실행되는 SQL 수를 하이버네이트 통계로 검증한다.
+ * 팀 10개, 팀마다 회원 5명 (배치 페치가 없으면 팀/회원을 따라갈 때마다 쿼리가 10번씩 더 나간다)
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class MemberFetchPlanTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    Statistics statistics;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < 5; j++) {
+                em.persist(new Member("member" + i + "_" + j, j * 10, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // 지연 로딩 - default_batch_fetch_size 로 팀 프록시를 한 번에 초기화 (1 + 1)
+    @Test
+    public void lazyTeam_batchFetch() {
+        List<Member> members = memberJpaRepository.findAll();
+        members.forEach(m -> m.getTeam().getName());
+
+        assertThat(members).hasSize(50);
+        assertThat(statementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void findAllFetchTeam() {
+        List<Member> members = memberJpaRepository.findAllFetchTeam();
+        members.forEach(m -> m.getTeam().getName());
+
+        assertThat(members).hasSize(50);
+        assertThat(statementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findByUsernameFetchTeam() {
+        List<Member> members = memberJpaRepository.findByUsernameFetchTeam("member3_1");
+
+        assertThat(members).extracting(m -> m.getTeam().getName()).containsExactly("team3");
+        assertThat(statementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void entityGraph() {
+        List<Member> members = memberRepository.findAllWithTeam();
+        members.forEach(m -> m.getTeam().getName());
+        List<Member> byUsername = memberRepository.findWithTeamByUsername("member3_1");
+        byUsername.forEach(m -> m.getTeam().getName());
+
+        assertThat(members).hasSize(50);
+        assertThat(byUsername).hasSize(1);
+        assertThat(statementCount()).isEqualTo(2);
+    }
+
+    // Team.members - @BatchSize 로 여러 팀의 컬렉션을 한 번에 초기화 (1 + 1)
+    @Test
+    public void teamMembers_batchFetch() {
+        List<Team> teams = em.createQuery("select t from Team t", Team.class).getResultList();
+        int memberCount = teams.stream().mapToInt(t -> t.getMembers().size()).sum();
+
+        assertThat(memberCount).isEqualTo(50);
+        assertThat(statementCount()).isEqualTo(2);
+    }
+
+    private long statementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 대량 저장 (시퀀스 pooled 옵티마이저 + JDBC 배치 insert) - 처리량은 SaveAllBenchmark
+ * (SQL/바인딩 값을 모두 로그로 남기면 너무 느려서 이 테스트에서는 끈다)
+ */
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@Transactional
+class MemberJpaRepositoryBatchTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void saveAll() {
+        Team team = new Team("teamA");
+        em.persist(team);
+        List<Member> members = IntStream.rangeClosed(1, 120)
+                .mapToObj(i -> new Member("member" + i, i, team))
+                .collect(Collectors.toList());
+
+        long saved = memberJpaRepository.saveAll(members);
+
+        assertThat(saved).isEqualTo(120);
+        assertThat(em.contains(members.get(0))).as("flush 후 clear 됨").isFalse();
+        List<Member> result = em.createQuery("select m from Member m join fetch m.team t where t.name = 'teamA'", Member.class)
+                .getResultList();
+        assertThat(result).hasSize(120);
+    }
+}
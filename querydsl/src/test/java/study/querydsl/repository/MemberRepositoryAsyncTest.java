@@ -0,0 +1,143 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * searchAsync - 다른 스레드의 트랜잭션에서 조회하므로 데이터를 커밋해 두고 테스트한다.
+ * 조회 Executor 스레드를 1 개로 두고 그 스레드를 막아서 대기 중인 검색의 타임아웃/취소를 확인한다.
+ */
+@SpringBootTest(properties = {
+        "member.async.pool-size=1",
+        "member.search-cache.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureMockMvc
+class MemberRepositoryAsyncTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    @Qualifier("memberQueryExecutor")
+    ExecutorService queryExecutor;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void searchAsync() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        List<MemberTeamDto> result = memberRepository.searchAsync(condition, Duration.ofSeconds(5))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    public void timeoutAndCancelBeforeStart() throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        CountDownLatch release = new CountDownLatch(1);
+        queryExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<List<MemberTeamDto>> timedOut =
+                memberRepository.searchAsync(new MemberSearchCondition(), Duration.ofMillis(100));
+        CompletableFuture<List<MemberTeamDto>> cancelled =
+                memberRepository.searchAsync(new MemberSearchCondition(), Duration.ofSeconds(5));
+        cancelled.cancel(true);
+
+        assertThatThrownBy(() -> timedOut.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(cancelled).isCancelled();
+
+        long queries = statistics.getQueryExecutionCount();
+        long transactions = statistics.getTransactionCount();
+        release.countDown();
+        queryExecutor.submit(() -> null).get(5, TimeUnit.SECONDS); // 대기열이 비워질 때까지
+
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(queries); // 두 검색 모두 실행되지 않음
+        assertThat(statistics.getTransactionCount()).isEqualTo(transactions); // 트랜잭션(커넥션)도 열지 않음
+    }
+
+    @Test
+    public void searchByTeams() throws Exception {
+        MvcResult result = mockMvc.perform(get("/v1/members/by-team")
+                        .param("teamNames", "teamA", "teamB")
+                        .param("ageGoe", "20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.teamA[0].username").value("member2"))
+                .andExpect(jsonPath("$.teamB[0].username").value("member3"));
+    }
+}
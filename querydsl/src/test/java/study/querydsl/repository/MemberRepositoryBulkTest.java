@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 벌크 연산 - chunk(chunk-size=2)마다 커밋되는지 보려고 테스트 전체를 트랜잭션으로 묶지 않는다.
+ */
+@SpringBootTest(properties = {
+        "member.bulk.chunk-size=2",
+        "member.team-summary.enabled=true"})
+class MemberRepositoryBulkTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamSummaryRepository teamSummaryRepository;
+
+    @Autowired
+    TeamSummaryMaintainer teamSummaryMaintainer;
+
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamA));
+            em.persist(new Member("member5", 50, teamA));
+            member1Id = member1.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        teamSummaryMaintainer.rebuild();
+    }
+
+    @Test
+    public void bulkAddAgeInChunks() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(10, 20, 40, 50);
+        long commits = statistics.getSuccessfulTransactionCount();
+
+        long count = memberRepository.bulkAddAge(condition, 1);
+
+        // teamA 회원 4 명 - 2 명씩 2 chunk
+        assertThat(count).isEqualTo(4);
+        assertThat(statistics.getSuccessfulTransactionCount() - commits).isGreaterThanOrEqualTo(2);
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(11, 21, 41, 51);
+        assertThat(memberRepository.findByUsername("member3")).extracting("age").containsExactly(30);
+        assertThat(teamSummaryRepository.findStatsByTeamName("teamA")).get()
+                .extracting(TeamStatsDto::getAvgAge).isEqualTo(31.0);
+    }
+
+    /**
+     * 조건에 맞는 id 가 넓은 범위에 드문드문 있어도 chunk 는 회원 수만큼만 - id 구간으로 나누면 빈 구간이 50 만 개
+     */
+    @Test
+    public void sparseIdsInFewChunks() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        tx.executeWithoutResult(status -> em.createNativeQuery(
+                        "insert into member (member_id, username, age, team_id) values (:id, 'far', 60, :teamId)")
+                .setParameter("id", member1Id + 1_000_000)
+                .setParameter("teamId", teamAId())
+                .executeUpdate());
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        long commits = statistics.getSuccessfulTransactionCount();
+
+        assertThat(memberRepository.bulkAddAge(condition, 1)).isEqualTo(5);
+
+        // chunk 3 개 + 빈 조회 1 번 + 팀 요약 rebuild
+        assertThat(statistics.getSuccessfulTransactionCount() - commits).isLessThanOrEqualTo(5);
+        assertThat(memberRepository.findByUsername("far")).extracting("age").containsExactly(61);
+    }
+
+    // 같은 트랜잭션에서 읽은 엔티티는 준영속이 되고 다시 읽으면 벌크 결과가 보인다
+    @Test
+    public void noStaleEntitiesInCallerTransaction() {
+        tx.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setUsername("renamed"); // 벌크 전에 flush 된다
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeLoe(20);
+            memberRepository.bulkAddAge(condition, 5);
+
+            assertThat(em.contains(member1)).isFalse();
+            Member reloaded = em.find(Member.class, member1Id);
+            assertThat(reloaded.getAge()).isEqualTo(15);
+            assertThat(reloaded.getUsername()).isEqualTo("renamed");
+        });
+    }
+
+    @Test
+    public void bulkDeleteByCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamAId()).getMembers()).hasSize(4));
+
+        long count = memberRepository.bulkDeleteByCondition(condition);
+
+        assertThat(count).isEqualTo(3);
+        List<Member> left = memberRepository.findAll();
+        assertThat(left).extracting("username").containsExactlyInAnyOrder("member1", "member3");
+        // Team.members 2차 캐시도 비워진다
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamAId()).getMembers())
+                .extracting("username").containsExactly("member1"));
+        assertThat(teamSummaryRepository.findStatsByTeamName("teamA")).get()
+                .extracting(TeamStatsDto::getMemberCount).isEqualTo(1L);
+    }
+
+    @Test
+    public void bulkDeleteRequiresCondition() {
+        assertThatThrownBy(() -> memberRepository.bulkDeleteByCondition(new MemberSearchCondition()))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(memberRepository.count()).isEqualTo(5);
+    }
+
+    private Long teamAId() {
+        return memberRepository.findById(member1Id).orElseThrow().getTeam().getId();
+    }
+}
@@ -0,0 +1,186 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * searchParallelStream - 파티션은 export Executor 스레드의 트랜잭션에서 조회하므로 데이터를 커밋해 두고 테스트한다.
+ */
+@SpringBootTest(properties = "member.export.parallelism=2")
+class MemberRepositoryParallelStreamTest {
+
+    static final int MEMBERS = 100;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    @Qualifier("memberExportExecutor")
+    ExecutorService exportExecutor;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < MEMBERS; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+            em.persist(new Member("noTeam", 50));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    /**
+     * 파티션 수(회원 수보다 많은 경우 포함)와 상관없이 searchStream() 과 같은 결과
+     */
+    @Test
+    public void sameAsSearchStream() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        teamA.setAgeGoe(20);
+
+        for (MemberSearchCondition condition : List.of(all, teamA)) {
+            List<Long> expected = tx.execute(status -> {
+                try (Stream<MemberTeamDto> rows = memberRepository.searchStream(condition, 10)) {
+                    return rows.map(MemberTeamDto::getMemberId).sorted().collect(Collectors.toList());
+                }
+            });
+            for (int partitions : new int[]{1, 3, 7, 500}) {
+                assertThat(ids(condition, partitions, true))
+                        .as("ordered, %d partitions", partitions)
+                        .containsExactlyElementsOf(expected);
+                assertThat(ids(condition, partitions, false))
+                        .as("unordered, %d partitions", partitions)
+                        .containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    /**
+     * 버퍼(fetchSize)가 찬 파티션은 기다리다가 close 하면 끝난다 - Executor 스레드가 모두 풀려야 한다.
+     */
+    @Test
+    public void closeStopsBlockedPartitions() throws Exception {
+        try (Stream<MemberTeamDto> rows = memberRepository.searchParallelStream(new MemberSearchCondition(), 4, 2, true)) {
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            assertThat(iterator.next().getUsername()).isEqualTo("member0");
+            assertThat(iterator.next().getUsername()).isEqualTo("member1");
+        }
+
+        // 대기열의 파티션까지 모두 끝나야 실행된다
+        exportExecutor.submit(() -> null).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 조회 중에 회원이 바뀌면 시작 시점의 결과가 아니므로 마지막 row 뒤에 실패한다.
+     */
+    @Test
+    public void changedDuringExportFails() {
+        try (Stream<MemberTeamDto> rows = memberRepository.searchParallelStream(new MemberSearchCondition(), 2, 2, true)) {
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            assertThat(iterator.next().getUsername()).isEqualTo("member0");
+
+            tx.executeWithoutResult(status -> em
+                    .createQuery("select m from Member m where m.username = 'member99'", Member.class)
+                    .getSingleResult()
+                    .setAge(1000));
+
+            assertThatThrownBy(() -> iterator.forEachRemaining(row -> {
+            })).isInstanceOf(OptimisticLockingFailureException.class);
+        }
+    }
+
+    /**
+     * changeStamp 는 @Version 이 아니다 - 같은 회원을 먼저 읽은 두 트랜잭션이 모두 커밋된다. (마지막 수정이 남는다)
+     */
+    @Test
+    public void changeStampDoesNotLock() {
+        EntityManager first = emf.createEntityManager();
+        EntityManager second = emf.createEntityManager();
+        try {
+            first.getTransaction().begin();
+            second.getTransaction().begin();
+            Member byFirst = first.createQuery("select m from Member m where m.username = 'member1'", Member.class)
+                    .getSingleResult();
+            Member bySecond = second.find(Member.class, byFirst.getId());
+
+            byFirst.setAge(100);
+            first.getTransaction().commit();
+            bySecond.setAge(200);
+            second.getTransaction().commit();
+        } finally {
+            first.close();
+            second.close();
+        }
+
+        assertThat(tx.execute(status -> em
+                .createQuery("select m.age from Member m where m.username = 'member1'", Integer.class)
+                .getSingleResult())).isEqualTo(200);
+    }
+
+    // 파티션 수는 export Executor 스레드 수(member.export.parallelism=2)로 줄인다
+    @Test
+    public void partitionsClampedToParallelism() {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) exportExecutor;
+        long before = executor.getTaskCount();
+
+        assertThat(ids(new MemberSearchCondition(), 500, false)).hasSize(MEMBERS + 1);
+
+        assertThat(executor.getTaskCount() - before).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThatThrownBy(() -> memberRepository.searchParallelStream(new MemberSearchCondition(), 0, 10, false))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    private List<Long> ids(MemberSearchCondition condition, int partitions, boolean ordered) {
+        try (Stream<MemberTeamDto> rows = memberRepository.searchParallelStream(condition, partitions, 3, ordered)) {
+            return rows.map(MemberTeamDto::getMemberId).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 대용량 스트리밍 조회 - 전체 결과를 메모리에 올리지 않는지 확인
+ * (SQL/바인딩 값을 모두 로그로 남기면 너무 느려서 이 테스트에서는 끈다)
+ * 힙 측정은 느리고 GC 시점에 따라 흔들리므로 load 태그로 기본 test 에서 뺀다. (./gradlew loadTest)
+ */
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info",
+        "decorator.datasource.p6spy.enable-logging=false"})
+@Transactional
+class MemberRepositoryStreamTest {
+
+    static final int ROWS = 300_000;
+    static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024; // List 로 모두 받으면 이보다 훨씬 크다
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    /**
+     * DTO 로 바로 조회하므로 읽는 동안 영속성 컨텍스트에 엔티티가 쌓이지 않는다.
+     */
+    @Test
+    public void searchStream_noManagedEntities() {
+        insertStreamMembers(2_000);
+        Session session = em.unwrap(Session.class);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("streamTeam");
+        long count = 0;
+        try (Stream<MemberTeamDto> stream = memberRepository.searchStream(condition, 100)) {
+            for (MemberTeamDto dto : (Iterable<MemberTeamDto>) stream::iterator) {
+                assertThat(dto.getTeamName()).isEqualTo("streamTeam");
+                if (++count % 500 == 0) {
+                    assertThat(session.getStatistics().getEntityCount()).isZero();
+                }
+            }
+        }
+
+        assertThat(count).isEqualTo(2_000);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @Tag("load")
+    public void searchStream_boundedHeap() {
+        insertStreamMembers(ROWS);
+
+        long baseline = usedHeapAfterGc();
+        AtomicLong count = new AtomicLong();
+        AtomicLong maxGrowth = new AtomicLong();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("streamTeam");
+        try (Stream<MemberTeamDto> stream = memberRepository.searchStream(condition, 500)) {
+            stream.forEach(dto -> {
+                if (count.incrementAndGet() % 50_000 == 0) {
+                    maxGrowth.accumulateAndGet(usedHeapAfterGc() - baseline, Math::max);
+                }
+            });
+        }
+
+        assertThat(count.get()).isEqualTo(ROWS);
+        assertThat(maxGrowth.get()).isLessThan(MAX_HEAP_GROWTH);
+    }
+
+    // 엔티티를 persist 하지 않고 SQL 로 바로 생성 (영속성 컨텍스트를 거치지 않음)
+    private void insertStreamMembers(int rows) {
+        em.createNativeQuery("insert into team (id, name) values (1000000000, 'streamTeam')")
+                .executeUpdate();
+        em.createNativeQuery("insert into member (member_id, username, age, team_id) " +
+                        "select x + 1000000000, concat('stream', x), mod(x, 100), 1000000000 " +
+                        "from system_range(1, " + rows + ")")
+                .executeUpdate();
+    }
+
+    private long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,282 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberKeysetPage;
+import study.querydsl.dto.MemberKeysetSort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class MemberRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+    }
+
+    @Test
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        assertThat(result).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    public void teamStats() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        em.persist(new Member("noTeam", 50));
+
+        List<TeamStatsDto> result = memberRepository.teamStats(condition);
+
+        assertThat(result).extracting("teamName", "memberCount", "avgAge", "minAge", "maxAge")
+                .containsExactly(
+                        tuple("teamA", 1L, 20.0, 20, 20),
+                        tuple("teamB", 2L, 35.0, 30, 40));
+    }
+
+    /**
+     * JPQL 템플릿 결과가 Querydsl 동적 쿼리 결과와 같은지 16 가지 조건 shape 모두 확인
+     */
+    @Test
+    public void searchTemplates_allShapes() {
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member2" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 15 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 35 : null);
+
+            List<MemberTeamDto> expected = queryFactory
+                    .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(condition.getUsername() == null ? null : member.username.eq(condition.getUsername()),
+                            condition.getTeamName() == null ? null : team.name.eq(condition.getTeamName()),
+                            condition.getAgeGoe() == null ? null : member.age.goe(condition.getAgeGoe()),
+                            condition.getAgeLoe() == null ? null : member.age.loe(condition.getAgeLoe()))
+                    .fetch();
+
+            assertThat(memberRepository.search(condition))
+                    .as("shape %d", shape)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    /**
+     * 열 형식 결과를 DTO 로 되돌리면 search() 결과와 같아야 한다. (16 가지 shape, 팀 없는 회원 포함)
+     */
+    @Test
+    public void searchColumns_allShapes() {
+        em.persist(new Member("noTeam", 25));
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member2" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 15 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 35 : null);
+
+            MemberTeamColumns columns = memberRepository.searchColumns(condition, 2);
+            List<MemberTeamDto> result = new ArrayList<>();
+            for (int row = 0; row < columns.size(); row++) {
+                result.add(columns.toDto(row));
+            }
+
+            assertThat(result)
+                    .as("shape %d", shape)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+        }
+    }
+
+    @Test
+    public void searchColumns_teamDictionary() {
+        em.persist(new Member("noTeam", 50));
+
+        MemberTeamColumns columns = memberRepository.searchColumns(new MemberSearchCondition(), 100);
+
+        assertThat(columns.size()).isEqualTo(5);
+        assertThat(columns.teamCount()).isEqualTo(2);
+        for (int row = 0; row < columns.size(); row++) {
+            int teamCode = columns.teamCode(row);
+            if (columns.username(row).equals("noTeam")) {
+                assertThat(teamCode).isEqualTo(MemberTeamColumns.NO_TEAM);
+            } else {
+                assertThat(columns.teamName(teamCode))
+                        .isEqualTo(columns.age(row) <= 20 ? "teamA" : "teamB");
+            }
+        }
+        assertThatThrownBy(() -> columns.memberId(5)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void searchPage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3);
+
+        Page<MemberTeamDto> result = memberRepository.searchPage(condition, pageRequest);
+
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(result.getTotalPages()).isEqualTo(2);
+        assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+    }
+
+    /**
+     * 첫 페이지의 content 가 pageSize 보다 작거나, 마지막 페이지인 경우 count 쿼리 없이 total 을 계산한다.
+     */
+    @Test
+    public void searchPage_countQuerySkipped() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        em.flush(); // before() 의 insert 가 조회 때 auto flush 되지 않도록
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        long statements = statistics.getPrepareStatementCount();
+        Page<MemberTeamDto> firstPage = memberRepository.searchPage(condition, PageRequest.of(0, 10));
+        assertThat(firstPage.getTotalElements()).isEqualTo(2);
+        assertThat(firstPage.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+
+        statements = statistics.getPrepareStatementCount();
+        Page<MemberTeamDto> lastPage = memberRepository.searchPage(new MemberSearchCondition(), PageRequest.of(1, 3));
+        assertThat(lastPage.getTotalElements()).isEqualTo(4);
+        assertThat(lastPage.getContent()).extracting("username").containsExactly("member4");
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+
+        // 가득 찬 첫 페이지는 total 을 알 수 없으므로 count 쿼리를 실행한다
+        statements = statistics.getPrepareStatementCount();
+        memberRepository.searchPage(new MemberSearchCondition(), PageRequest.of(0, 3));
+        assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(2);
+    }
+
+    @Test
+    public void searchPage_sort() {
+        em.persist(new Member("member5", 40));
+
+        Page<MemberTeamDto> byAge = memberRepository.searchPage(new MemberSearchCondition(),
+                PageRequest.of(0, 3, Sort.by(Sort.Order.desc("age"))));
+        assertThat(byAge.getContent()).extracting("username").containsExactly("member4", "member5", "member3");
+
+        Page<MemberTeamDto> byTeam = memberRepository.searchPage(new MemberSearchCondition(),
+                PageRequest.of(0, 4, Sort.by("teamName").descending().and(Sort.by("age"))));
+        assertThat(byTeam.getContent()).extracting("username").containsExactly("member3", "member4", "member1", "member2");
+
+        assertThatThrownBy(() -> memberRepository.searchPage(new MemberSearchCondition(),
+                PageRequest.of(0, 3, Sort.by("password"))))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    /**
+     * 키셋 페이징 - nextCursor 를 따라가면 전체 결과를 중복/누락 없이 순서대로 조회한다.
+     */
+    @Test
+    public void searchKeyset() {
+        em.persist(new Member("member5", 20));
+        em.persist(new Member("member6", 10));
+
+        List<String> byId = readAll(new MemberSearchCondition(), MemberKeysetSort.ID, 4);
+        assertThat(byId).containsExactly("member1", "member2", "member3", "member4", "member5", "member6");
+
+        // 같은 나이는 member.id 순
+        List<String> byAge = readAll(new MemberSearchCondition(), MemberKeysetSort.AGE, 2);
+        assertThat(byAge).containsExactly("member1", "member6", "member2", "member5", "member3", "member4");
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(readAll(condition, MemberKeysetSort.AGE, 1)).containsExactly("member1", "member2");
+    }
+
+    @Test
+    public void searchKeyset_lastPage() {
+        MemberKeysetPage page = memberRepository.searchKeyset(new MemberSearchCondition(), MemberKeysetSort.ID, null, 4);
+
+        assertThat(page.getContent()).hasSize(4);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchKeyset_invalidCursor() {
+        MemberKeysetPage page = memberRepository.searchKeyset(new MemberSearchCondition(), MemberKeysetSort.ID, null, 1);
+
+        assertThatThrownBy(() -> memberRepository.searchKeyset(
+                new MemberSearchCondition(), MemberKeysetSort.AGE, page.getNextCursor(), 1))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class); // IllegalArgumentException 은 스프링 예외로 변환됨
+        assertThatThrownBy(() -> memberRepository.searchKeyset(
+                new MemberSearchCondition(), MemberKeysetSort.ID, "not-a-cursor", 1))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+    }
+
+    // size + 1 이 넘치지 않도록 member.keyset.max-size(기본 1000)보다 크면 실패
+    @Test
+    public void searchKeyset_sizeOutOfRange() {
+        assertThatThrownBy(() -> memberRepository.searchKeyset(
+                new MemberSearchCondition(), MemberKeysetSort.ID, null, Integer.MAX_VALUE))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        assertThatThrownBy(() -> memberRepository.searchKeyset(
+                new MemberSearchCondition(), MemberKeysetSort.ID, null, 1001))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        assertThat(memberRepository.searchKeyset(new MemberSearchCondition(), MemberKeysetSort.ID, null, 1000).getContent())
+                .hasSize(4);
+    }
+
+    private List<String> readAll(MemberSearchCondition condition, MemberKeysetSort sort, int size) {
+        List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        do {
+            MemberKeysetPage page = memberRepository.searchKeyset(condition, sort, cursor, size);
+            page.getContent().forEach(dto -> usernames.add(dto.getUsername()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return usernames;
+    }
+}
@@ -0,0 +1,201 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 검색 결과 캐시 - 커밋된 변경만 캐시 무효화에 반영되므로 테스트 전체를 트랜잭션으로 묶지 않는다.
+ */
+@SpringBootTest
+class MemberSearchCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+        searchCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        searchCache.invalidateAll();
+    }
+
+    @Test
+    public void hitAfterMiss() {
+        long hits = searchCache.stats().hitCount();
+        long misses = searchCache.stats().missCount();
+
+        List<MemberTeamDto> first = memberRepository.search(teamName("teamA"));
+        List<MemberTeamDto> second = memberRepository.search(teamName("teamA"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(searchCache.stats().missCount()).isEqualTo(misses + 1);
+        assertThat(searchCache.stats().hitCount()).isEqualTo(hits + 1);
+    }
+
+    // 빈 문자열 조건은 조건 없음과 같은 캐시 키
+    @Test
+    public void normalizedKey() {
+        MemberSearchCondition empty = new MemberSearchCondition();
+        empty.setUsername("");
+
+        List<MemberTeamDto> first = memberRepository.search(new MemberSearchCondition());
+
+        assertThat(memberRepository.search(empty)).isSameAs(first);
+    }
+
+    /**
+     * 캐시된 결과는 모든 호출자가 공유하므로 한 호출자가 바꿀 수 없다. (List 는 수정 불가, row 는 불변)
+     */
+    @Test
+    public void cachedRowsCannotBeModified() {
+        List<MemberTeamDto> first = memberRepository.search(teamName("teamA"));
+
+        assertThatThrownBy(() -> first.set(0, new MemberTeamDto(first.get(0).getMemberId(), "changed", 99, teamBId, "teamB")))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> first.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(MemberTeamDto.class.getDeclaredFields())
+                .allMatch(field -> Modifier.isFinal(field.getModifiers()), "final field");
+
+        assertThat(memberRepository.search(teamName("teamA")))
+                .extracting("username", "age", "teamName")
+                .containsExactly(tuple("member1", 10, "teamA"), tuple("member2", 20, "teamA"));
+    }
+
+    /**
+     * save 한 member 와 매칭되는 조건만 무효화된다.
+     */
+    @Test
+    public void saveInvalidatesAffectedEntries() {
+        List<MemberTeamDto> teamA = memberRepository.search(teamName("teamA"));
+        List<MemberTeamDto> teamB = memberRepository.search(teamName("teamB"));
+
+        tx.executeWithoutResult(status ->
+                memberJpaRepository.save(new Member("member4", 40, em.find(Team.class, teamAId))));
+
+        assertThat(memberRepository.search(teamName("teamA")))
+                .extracting("username")
+                .containsExactly("member1", "member2", "member4");
+        assertThat(memberRepository.search(teamName("teamB"))).isSameAs(teamB);
+        assertThat(teamA).hasSize(2);
+    }
+
+    /**
+     * changeTeam 은 이전 팀과 새 팀 조건을 모두 무효화한다.
+     */
+    @Test
+    public void changeTeamInvalidatesOldAndNewTeam() {
+        memberRepository.search(teamName("teamA"));
+        memberRepository.search(teamName("teamB"));
+        MemberSearchCondition other = new MemberSearchCondition();
+        other.setUsername("member3");
+        List<MemberTeamDto> member3 = memberRepository.search(other);
+
+        tx.executeWithoutResult(status ->
+                em.find(Member.class, member1Id).changeTeam(em.find(Team.class, teamBId)));
+
+        assertThat(memberRepository.search(teamName("teamA"))).extracting("username").containsExactly("member2");
+        assertThat(memberRepository.search(teamName("teamB"))).extracting("username").containsExactly("member1", "member3");
+        assertThat(memberRepository.search(other)).isSameAs(member3);
+    }
+
+    @Test
+    public void teamRenameInvalidatesTeamEntries() {
+        memberRepository.search(teamName("teamA"));
+        memberRepository.search(new MemberSearchCondition());
+
+        tx.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("teamC"));
+
+        assertThat(memberRepository.search(teamName("teamA"))).isEmpty();
+        assertThat(memberRepository.search(teamName("teamC"))).hasSize(2);
+        // 팀 조건이 없는 검색도 바뀐 팀 이름으로 다시 조회한다
+        assertThat(memberRepository.search(new MemberSearchCondition()))
+                .extracting(MemberTeamDto::getTeamName)
+                .contains("teamC")
+                .doesNotContain("teamA");
+    }
+
+    // 롤백된 변경은 캐시에 영향이 없다
+    @Test
+    public void rollbackKeepsEntries() {
+        List<MemberTeamDto> teamA = memberRepository.search(teamName("teamA"));
+
+        tx.executeWithoutResult(status -> {
+            memberJpaRepository.save(new Member("member4", 40, em.find(Team.class, teamAId)));
+            status.setRollbackOnly();
+        });
+
+        assertThat(memberRepository.search(teamName("teamA"))).isSameAs(teamA);
+    }
+
+    /**
+     * 호출한 쪽 트랜잭션에서 flush 되지 않은 setter 변경은 (인터셉터가 아직 모른다) 캐시가 아닌 DB 에서 (auto flush 후) 읽는다.
+     */
+    @Test
+    public void unflushedChangeSkipsCache() {
+        List<MemberTeamDto> cached = memberRepository.search(teamName("teamA"));
+
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, member1Id).setAge(99);
+            assertThat(memberRepository.search(teamName("teamA")))
+                    .isNotSameAs(cached)
+                    .extracting("age")
+                    .containsExactly(99, 20);
+        });
+    }
+
+    private MemberSearchCondition teamName(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
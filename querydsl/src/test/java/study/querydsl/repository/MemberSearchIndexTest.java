@@ -0,0 +1,136 @@
+package study.querydsl.repository;
+
+import org.hibernate.engine.query.spi.QueryPlanCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.*;
+import static study.querydsl.repository.MemberSearchQueryTemplates.*;
+
+/**
+ * search() 조건 shape 별 H2 실행 계획 - 조건이 하나라도 있으면 member 를 테이블 스캔하지 않아야 한다.
+ * 템플릿 JPQL 을 하이버네이트가 변환한 SQL 그대로 EXPLAIN 한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberSearchIndexTest {
+
+    // MEMBER 다음의 /* PUBLIC.인덱스: 조건 */ - 인덱스 전체 스캔이면 조건이 없다
+    private static final Pattern MEMBER_INDEX_SEEK =
+            Pattern.compile("\"MEMBER\" \"\\w+\"\\s*/\\* PUBLIC\\.IDX_\\w+: ", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MemberSearchQueryTemplates searchTemplates;
+
+    @BeforeEach
+    public void before() {
+        // 인덱스 선택이 데이터 양에 영향을 받으므로 팀 10개, 회원 1000명
+        jdbcTemplate.update("insert into team (id, name) select x, concat('team', x) from system_range(1, 10)");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x, concat('member', x), mod(x, 100), mod(x, 10) + 1 from system_range(1, 1000)");
+    }
+
+    @Test
+    public void everyShapeUsesIndex() {
+        for (int shape = 1; shape < SHAPES; shape++) {
+            String plan = explain(condition(shape));
+
+            assertThat(plan)
+                    .as("shape %d%n%s", shape, plan)
+                    .doesNotContainIgnoringCase("MEMBER.tableScan")
+                    .doesNotContainIgnoringCase("TEAM.tableScan")
+                    .containsPattern(MEMBER_INDEX_SEEK);
+        }
+    }
+
+    // 팀 이름 + 나이 - JPQL 은 member join team 이지만 옵티마이저가 팀을 먼저 찾고 (team_id, age) 범위로 회원을 찾는다
+    @Test
+    public void teamFirstPlan() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+
+        assertThat(explain(condition))
+                .containsPattern("FROM \"PUBLIC\".\"TEAM\" \"\\w+\"\\s*/\\* PUBLIC.IDX_TEAM_NAME: ")
+                .containsPattern("PUBLIC.IDX_MEMBER_TEAM_AGE: TEAM_ID = \\w+.ID\\s+AND AGE");
+    }
+
+    // 팀 이름이 있으면 inner join - 조인 순서는 옵티마이저가 고른다
+    @Test
+    public void innerJoinWithTeamName() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member42");
+        condition.setTeamName("team3");
+
+        assertThat(explain(condition))
+                .containsIgnoringCase("INNER JOIN")
+                .doesNotContainIgnoringCase("LEFT OUTER JOIN");
+        assertThat(explain(new MemberSearchCondition())).containsIgnoringCase("LEFT OUTER JOIN");
+    }
+
+    @Test
+    public void usernameUsesIndex() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member42");
+
+        assertThat(explain(condition)).containsIgnoringCase("IDX_MEMBER_USERNAME");
+    }
+
+    private MemberSearchCondition condition(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & USERNAME) != 0) {
+            condition.setUsername("member42");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            condition.setTeamName("team3");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            condition.setAgeGoe(20);
+        }
+        if ((shape & AGE_LOE) != 0) {
+            condition.setAgeLoe(40);
+        }
+        return condition;
+    }
+
+    // 템플릿의 where 절 순서(username, teamName, ageGoe, ageLoe)대로 파라미터를 바인딩한다
+    private String explain(MemberSearchCondition condition) {
+        QueryPlanCache planCache = emf.unwrap(SessionFactoryImplementor.class).getQueryPlanCache();
+        String sql = planCache.getHQLQueryPlan(searchTemplates.jpql(condition), false, Collections.emptyMap())
+                .getSqlStrings()[0];
+
+        List<Object> args = new ArrayList<>();
+        if (condition.getUsername() != null) {
+            args.add(condition.getUsername());
+        }
+        if (condition.getTeamName() != null) {
+            args.add(condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            args.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            args.add(condition.getAgeLoe());
+        }
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, args.toArray());
+    }
+}
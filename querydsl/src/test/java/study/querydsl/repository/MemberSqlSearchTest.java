@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.BDDMockito.then;
+
+/**
+ * member.search.engine=sql - Querydsl SQL 결과가 JPQL 템플릿 결과와 같아야 한다.
+ */
+@SpringBootTest(properties = {"member.search.engine=sql", "member.search-cache.enabled=false"})
+@Transactional
+class MemberSqlSearchTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @SpyBean
+    MemberSqlSearch sqlSearch;
+
+    @Autowired
+    MemberSearchQueryTemplates searchTemplates;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("noTeam", 25));
+        em.flush();
+    }
+
+    @Test
+    public void sameAsJpql_allShapes() {
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member2" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 15 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 35 : null);
+
+            assertThat(sqlSearch.search(condition))
+                    .as("shape %d", shape)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(searchTemplates.createQuery(em, condition).getResultList());
+        }
+    }
+
+    // JDBC 로 직접 조회하므로 리포지토리가 먼저 flush 해야 방금 바꾼 값이 보인다
+    @Test
+    public void repositoryFlushesBeforeSqlSearch() {
+        Member member = em.createQuery("select m from Member m where m.username = 'member1'", Member.class)
+                .getSingleResult();
+        member.setAge(99);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+
+        assertThat(memberRepository.search(condition))
+                .extracting(MemberTeamDto::getUsername, MemberTeamDto::getTeamName)
+                .containsExactly(tuple("member1", "teamA"));
+    }
+
+    // searchAsync 도 SQL 경로로 - 남은 시간을 Statement 타임아웃으로 넘긴다 (다른 트랜잭션이라 커밋되지 않은 before() 데이터는 안 보인다)
+    @Test
+    public void searchAsyncUsesSqlEngine() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        memberRepository.searchAsync(condition, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+
+        then(sqlSearch).should().search(eq(condition), intThat(timeout -> timeout > 0 && timeout <= 5));
+    }
+}
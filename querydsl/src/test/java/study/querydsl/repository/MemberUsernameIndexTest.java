@@ -0,0 +1,183 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.UsernameMatch;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * UsernameMatch.PREFIX/CONTAINS 와 3-gram 인덱스 - 인덱스 제거는 커밋 후에 일어나므로 테스트 전체를 트랜잭션으로 묶지 않는다.
+ */
+@SpringBootTest(properties = "member.username-index.enabled=true")
+class MemberUsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberUsernameIndex usernameIndex;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member12", 20, teamA));
+            em.persist(new Member("member_2", 30));
+            em.persist(new Member("admin", 40));
+            member1Id = member1.getId();
+        });
+        searchCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        // 엔티티로 삭제해야 인덱스에서도 빠진다
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m", Member.class).getResultList().forEach(em::remove);
+            em.flush();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        searchCache.invalidateAll();
+    }
+
+    @Test
+    public void prefix() {
+        assertThat(memberRepository.search(username("member1", UsernameMatch.PREFIX)))
+                .extracting("username").containsExactlyInAnyOrder("member1", "member12");
+        // like 특수 문자는 그대로 비교한다 (member_ 가 member1 에 매칭되지 않는다)
+        assertThat(memberRepository.search(username("member_", UsernameMatch.PREFIX)))
+                .extracting("username").containsExactly("member_2");
+    }
+
+    @Test
+    public void contains() {
+        assertThat(memberRepository.search(username("ber1", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactlyInAnyOrder("member1", "member12");
+        assertThat(memberRepository.search(username("min", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("admin");
+        assertThat(memberRepository.search(username("nobody", UsernameMatch.CONTAINS))).isEmpty();
+        // 3 글자 미만은 like 스캔
+        assertThat(memberRepository.search(username("12", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("member12");
+        // 다른 조건과 함께, 비교 방식이 다르면 다른 캐시 키
+        MemberSearchCondition teamA = username("member1", UsernameMatch.CONTAINS);
+        teamA.setTeamName("teamA");
+        teamA.setAgeGoe(15);
+        assertThat(memberRepository.search(teamA)).extracting("username").containsExactly("member12");
+        assertThat(memberRepository.search(username("member1", UsernameMatch.EXACT)))
+                .extracting("username").containsExactly("member1");
+    }
+
+    // 같은 트랜잭션에서 저장하고 flush 하지 않은 회원도 찾는다
+    @Test
+    public void containsUnflushedMember() {
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("newcomer", 50));
+            assertThat(memberRepository.search(username("comer", UsernameMatch.CONTAINS)))
+                    .extracting("username").containsExactly("newcomer");
+            status.setRollbackOnly();
+        });
+    }
+
+    // 이름을 바꾸면 커밋 후 이전 이름의 3-gram 에서 빠지고 캐시도 무효화된다
+    @Test
+    public void renameAfterCommit() {
+        assertThat(memberRepository.search(username("ber1", UsernameMatch.CONTAINS))).hasSize(2);
+
+        tx.executeWithoutResult(status -> em.find(Member.class, member1Id).setUsername("renamed"));
+
+        assertThat(usernameIndex.candidates("ber1")).doesNotContain(member1Id);
+        assertThat(usernameIndex.candidates("renamed")).containsExactly(member1Id);
+        assertThat(memberRepository.search(username("ber1", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("member12");
+        assertThat(memberRepository.search(username("name", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("renamed");
+    }
+
+    // SQL 로 넣은 회원은 인덱스에 없다 - 처음 보는 3-gram 은 like 스캔으로 찾고, rebuild 후에는 인덱스로 찾는다
+    @Test
+    public void unknownGramFallsBackToLike() {
+        jdbcTemplate.update("insert into member (member_id, username, age) values (?, ?, ?)", 1_000_000_000L, "sqlwriter", 60);
+
+        assertThat(usernameIndex.candidates("sqlwr")).isNull();
+        assertThat(memberRepository.search(username("sqlwr", UsernameMatch.CONTAINS)))
+                .extracting("username").containsExactly("sqlwriter");
+
+        usernameIndex.rebuild();
+        assertThat(usernameIndex.candidates("sqlwr")).containsExactly(1_000_000_000L);
+        assertThat(usernameIndex.candidates("ber1")).contains(member1Id);
+    }
+
+    @Test
+    public void indexCandidates() {
+        MemberUsernameIndex index = new MemberUsernameIndex(mock(JdbcTemplate.class), true, 2);
+        index.put(1L, "alpha");
+        assertThat(index.candidates("alpha")).isNull(); // rebuild 전에는 모른다
+
+        index.rebuild();
+        index.put(1L, "alpha");
+        index.put(2L, "alphabet");
+        index.put(3L, "beta");
+        index.put(4L, "alps");
+
+        assertThat(index.candidates("pha")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.candidates("bet")).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(index.candidates("abeta")).isEmpty(); // 3-gram 은 모두 있지만 함께 가진 회원이 없다
+        assertThat(index.candidates("zzz")).isNull(); // 색인에 없는 3-gram
+        assertThat(index.candidates("al")).isNull(); // 너무 짧다
+        assertThat(index.candidates("alp")).isNull(); // 후보가 max-candidates(2) 보다 많다
+
+        // 트랜잭션 밖에서는 바로 제거
+        index.put(1L, "gamma");
+        index.remove(2L);
+        assertThat(index.candidates("pha")).isNull();
+        assertThat(index.candidates("amm")).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void disabledIndex() {
+        MemberUsernameIndex index = new MemberUsernameIndex(mock(JdbcTemplate.class), false, 2);
+        index.rebuild();
+        index.put(1L, "alpha");
+
+        assertThat(index.candidates("alpha")).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    private static MemberSearchCondition username(String username, UsernameMatch match) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setUsernameMatch(match);
+        return condition;
+    }
+}
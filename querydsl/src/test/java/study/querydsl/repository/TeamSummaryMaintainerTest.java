@@ -0,0 +1,199 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 팀 요약 테이블 - 커밋 직전에 반영되므로 테스트 전체를 트랜잭션으로 묶지 않는다.
+ * 요약 테이블 값이 group by 집계 결과(teamStats)와 항상 같아야 한다.
+ */
+@SpringBootTest(properties = "member.team-summary.enabled=true")
+class TeamSummaryMaintainerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    TeamSummaryRepository teamSummaryRepository;
+
+    @Autowired
+    TeamSummaryMaintainer teamSummaryMaintainer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long teamAId;
+    Long teamBId;
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        teamSummaryMaintainer.rebuild();
+    }
+
+    @Test
+    public void insert() {
+        assertThat(summary("teamA")).isEqualTo(tuple(2L, 15.0));
+        assertThat(summary("teamB")).isEqualTo(tuple(1L, 30.0));
+        assertMatchesTeamStats();
+    }
+
+    @Test
+    public void changeTeamAndAge() {
+        tx.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.changeTeam(em.find(Team.class, teamBId));
+            member1.setAge(50);
+        });
+
+        assertThat(summary("teamA")).isEqualTo(tuple(1L, 20.0));
+        assertThat(summary("teamB")).isEqualTo(tuple(2L, 40.0));
+        assertMatchesTeamStats();
+    }
+
+    @Test
+    public void deleteMemberAndTeam() {
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+        assertThat(summary("teamA")).isEqualTo(tuple(1L, 20.0));
+
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.team.id = :teamId", Member.class)
+                    .setParameter("teamId", teamBId)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.remove(em.find(Team.class, teamBId));
+        });
+        assertThat(teamSummaryRepository.findStatsByTeamName("teamB")).isEmpty();
+        assertMatchesTeamStats();
+    }
+
+    @Test
+    public void rollbackLeavesSummary() {
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member4", 40, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(summary("teamA")).isEqualTo(tuple(2L, 15.0));
+    }
+
+    // saveAll 은 flush + clear 를 반복하지만 변화량은 트랜잭션 끝까지 모인다
+    @Test
+    public void saveAll() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = em.find(Team.class, teamAId);
+            List<Member> members = new ArrayList<>();
+            for (int i = 0; i < 120; i++) {
+                members.add(new Member("bulk" + i, 40, teamA));
+            }
+            memberJpaRepository.saveAll(members);
+        });
+
+        assertThat(summary("teamA")).isEqualTo(tuple(122L, (10 + 20 + 120 * 40) / 122.0));
+        assertMatchesTeamStats();
+    }
+
+    /**
+     * 요약 row 가 없는 팀(기능을 켜기 전에 만든 팀)에 두 트랜잭션이 동시에 첫 회원을 저장해도 키 중복으로 실패하지 않는다.
+     * 다른 트랜잭션의 요약 row insert 를 커밋하지 않고 잡아 둔 채로 저장한다.
+     */
+    @Test
+    public void concurrentFirstMembersOfUnsummarizedTeam() throws Exception {
+        jdbcTemplate.update("insert into team (id, name) values (1000000000, 'teamC')");
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> other = executor.submit(() -> tx.executeWithoutResult(status -> {
+                jdbcTemplate.update("insert into team_summary (team_id, member_count, age_sum) values (1000000000, 1, 10)");
+                inserted.countDown();
+                await(release);
+            }));
+            assertThat(inserted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?> save = executor.submit(() -> tx.executeWithoutResult(status ->
+                    em.persist(new Member("member4", 40, em.find(Team.class, 1000000000L)))));
+            Thread.sleep(300); // save 가 update/insert 에서 잡힌 row 를 기다리는 동안
+            release.countDown();
+
+            other.get(10, TimeUnit.SECONDS);
+            save.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(summary("teamC")).isEqualTo(tuple(2L, 25.0));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object summary(String teamName) {
+        TeamStatsDto stats = teamSummaryRepository.findStatsByTeamName(teamName).orElseThrow();
+        return tuple(stats.getMemberCount(), stats.getAvgAge());
+    }
+
+    private void assertMatchesTeamStats() {
+        assertThat(teamSummaryRepository.findAllStats())
+                .extracting("teamId", "teamName", "memberCount", "avgAge")
+                .containsExactlyElementsOf(memberRepository.teamStats(new MemberSearchCondition()).stream()
+                        .map(stats -> tuple(stats.getTeamId(), stats.getTeamName(), stats.getMemberCount(), stats.getAvgAge()))
+                        .collect(Collectors.toList()));
+    }
+}